@@ -1,9 +1,21 @@
+import hardware.CPU;
+
 public class Main {
     public static void main(String[] args) {
         // Parâmetros default
         int tamMem = 1024;
         int tamPg = 8;
         int delta = 5;
+        String engine = "jit";
+        int cpus = 1;
+        String headless = null;
+        long maxTicks = 0;
+        String profileCsv = null;
+        String replacement = null;
+        int wsWindow = -1;
+        int zswap = -1;
+        int merge = -1;
+        int reclaim = -1;
         
         // Parse dos argumentos de linha de comando
         for (int i = 0; i < args.length; i++) {
@@ -23,6 +35,56 @@ public class Main {
                         delta = Integer.parseInt(args[++i]);
                     }
                     break;
+                case "--cpus":
+                    if (i + 1 < args.length) {
+                        cpus = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "--headless":
+                    if (i + 1 < args.length) {
+                        headless = args[++i];
+                    }
+                    break;
+                case "--max-ticks":
+                    if (i + 1 < args.length) {
+                        maxTicks = Long.parseLong(args[++i]);
+                    }
+                    break;
+                case "--profile":
+                    if (i + 1 < args.length) {
+                        profileCsv = args[++i];
+                    }
+                    break;
+                case "--replacement":
+                    if (i + 1 < args.length) {
+                        replacement = args[++i];
+                    }
+                    break;
+                case "--ws-window":
+                    if (i + 1 < args.length) {
+                        wsWindow = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "--zswap":
+                    if (i + 1 < args.length) {
+                        zswap = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "--merge":
+                    if (i + 1 < args.length) {
+                        merge = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "--reclaim":
+                    if (i + 1 < args.length) {
+                        reclaim = Integer.parseInt(args[++i]);
+                    }
+                    break;
+                case "--engine":
+                    if (i + 1 < args.length) {
+                        engine = args[++i];
+                    }
+                    break;
 
                 case "--help":
                 case "-h":
@@ -36,8 +98,37 @@ public class Main {
         }
         
         try {
-            Sistema s = new Sistema(tamMem, tamPg, delta);
-            s.run();
+            Sistema s = new Sistema(tamMem, tamPg, delta, cpus);
+            for (CPU cpu : s.hw.cpus) {
+                cpu.setBlockExecution(!engine.equals("interp"));
+            }
+            s.hw.cpus[0].getBlockCompiler().setTranslation(engine.equals("jit"));
+            if (profileCsv != null) {
+                s.hw.profiler.setEnabled(true);
+            }
+            if (replacement != null) {
+                s.so.setReplacementPolicy(replacement);
+            }
+            if (wsWindow >= 0) {
+                s.so.getLoadControl().setWindow(wsWindow);
+            }
+            if (zswap >= 0) {
+                s.so.getPager().getCompressedSwap().setPercent(zswap);
+            }
+            if (merge >= 0) {
+                s.so.getPageMerger().setPagesToScan(merge);
+            }
+            if (reclaim >= 0) {
+                s.so.getPageReclaimer().setPercent(reclaim);
+            }
+            if (headless != null) {
+                s.runHeadless(headless.split(","), maxTicks);
+                if (profileCsv != null) {
+                    s.so.profileCsv(profileCsv);
+                }
+            } else {
+                s.run();
+            }
         } catch (Exception e) {
             System.err.println("Erro ao inicializar sistema: " + e.getMessage());
             e.printStackTrace();
@@ -53,11 +144,23 @@ public class Main {
         System.out.println("  --mem <tamanho>    Tamanho da memória em palavras (default: 1024)");
         System.out.println("  --page <tamanho>   Tamanho da página em palavras (default: 8)");
         System.out.println("  --delta <valor>    Fatia de tempo em nº de instruções (default: 5)");
+        System.out.println("  --cpus <n>         Número de núcleos (CPUs) compartilhando a memória (default: 1)");
+        System.out.println("  --engine <modo>    interp = só interpretador, block = compila blocos quentes, jit = blocos + regiões em bytecode (default: jit)");
+        System.out.println("  --headless <progs> Sem shell nem threads: roda os programas (separados por vírgula)");
+        System.out.println("                     até o fim, com relógio virtual (execução reproduzível)");
+        System.out.println("  --max-ticks <n>    Limite de tempo virtual no modo --headless (default: sem limite)");
+        System.out.println("  --profile <arq>    Liga o profiler; no modo --headless grava o CSV em <arq> no fim");
+        System.out.println("  --replacement <p>  Política de substituição de páginas: fifo, clock, aging ou arc (default: clock)");
+        System.out.println("  --ws-window <n>    Janela do working set em instruções; 0 desliga o controle de carga (default: 200)");
+        System.out.println("  --zswap <pct>      Pool de swap comprimido em % da memória; 0 desliga (default: 20)");
+        System.out.println("  --merge <n>        Frames examinados por interrupção de tempo na união de páginas iguais; 0 desliga (default: 4)");
+        System.out.println("  --reclaim <pct>    Marca baixa de frames livres em % (a alta é o dobro) da recuperação em segundo plano; 0 desliga (default: 5)");
 
         System.out.println("  --help, -h         Mostrar esta ajuda");
         System.out.println();
         System.out.println("Exemplos:");
         System.out.println("  java Main                                     # Shell interativo");
         System.out.println("  java Main --mem 2048 --page 16 --delta 8     # Parâmetros customizados");
+        System.out.println("  java Main --headless fatorial,fibonacci10,PC # Lote sem shell, relógio virtual");
     }
 }
\ No newline at end of file
@@ -2,9 +2,11 @@
 // ------------------- S I S T E M A
 // --------------------------------------------------------------------
 
+import hardware.CPU;
 import hardware.Hw;
 import software.SO;
 import software.Shell;
+import software.Simulation;
 
 public class Sistema {
     public Hw hw;
@@ -13,14 +15,18 @@ public class Sistema {
     
     private Thread shellThread;
     private Thread schedulerThread;
-    private Thread cpuThread;
+    private Thread[] cpuThreads;
 
     public Sistema(int tamMem) {
         this(tamMem, 8, 5); // defaults: tamPg=8, delta=5
     }
     
     public Sistema(int tamMem, int tamPg, int delta) {
-        hw = new Hw(tamMem, tamPg, delta);           // memoria do HW tem tamMem palavras
+        this(tamMem, tamPg, delta, 1);
+    }
+
+    public Sistema(int tamMem, int tamPg, int delta, int nroCpus) {
+        hw = new Hw(tamMem, tamPg, delta, nroCpus);  // memoria do HW tem tamMem palavras
         so = new SO(hw);
         shell = new Shell(so);
         
@@ -29,6 +35,35 @@ public class Sistema {
         System.out.println("  Tamanho da página: " + tamPg + " palavras");
         System.out.println("  Delta (fatia tempo): " + delta + " instruções");
         System.out.println("  Frames disponíveis: " + hw.mem.getNroFrames());
+        System.out.println("  CPUs: " + hw.getNroCpus());
+    }
+
+    /**
+     * Modo sem threads: cria os processos e executa tudo em uma única thread,
+     * com relógio virtual (ver {@link Simulation}), até todos terminarem.
+     *
+     * @param programas nomes dos programas a carregar
+     * @param maxTicks  limite de tempo virtual (<= 0 para sem limite)
+     */
+    public void runHeadless(String[] programas, long maxTicks) {
+        Simulation sim = new Simulation(so);
+        for (String nome : programas) {
+            so.newProcess(nome);
+        }
+
+        long inicio = System.nanoTime();
+        sim.run(maxTicks);
+        long fim = System.nanoTime();
+
+        System.out.println();
+        System.out.print(sim);
+        System.out.printf("Tempo real: %.3f ms\n", (fim - inicio) / 1e6);
+        if (so.getMemoryManager().getFaults() > 0) {
+            System.out.print(so.vmStatus());
+        }
+        if (!so.ps().isEmpty()) {
+            System.out.println("Processos não finalizados: " + so.ps().size());
+        }
     }
 
     public void run() {
@@ -39,10 +74,13 @@ public class Sistema {
         schedulerThread.setDaemon(true);
         schedulerThread.start();
         
-        // Iniciar thread da CPU
-        cpuThread = new Thread(hw.cpu, "CPU");
-        cpuThread.setDaemon(true);
-        cpuThread.start();
+        // Iniciar uma thread por CPU (núcleo)
+        cpuThreads = new Thread[hw.cpus.length];
+        for (int i = 0; i < hw.cpus.length; i++) {
+            cpuThreads[i] = new Thread(hw.cpus[i], "CPU-" + i);
+            cpuThreads[i].setDaemon(true);
+            cpuThreads[i].start();
+        }
         
         // Iniciar thread do shell (thread principal)
         shellThread = new Thread(shell, "Shell");
@@ -57,16 +95,20 @@ public class Sistema {
         
         // Finalizar outras threads
         so.scheduler.shutdown();
-        hw.cpu.stopCPU();
+        for (CPU cpu : hw.cpus) {
+            cpu.stopCPU();
+        }
         
         try {
             if (schedulerThread.isAlive()) {
                 schedulerThread.interrupt();
                 schedulerThread.join(1000);
             }
-            if (cpuThread.isAlive()) {
-                cpuThread.interrupt();
-                cpuThread.join(1000);
+            for (Thread cpuThread : cpuThreads) {
+                if (cpuThread.isAlive()) {
+                    cpuThread.interrupt();
+                    cpuThread.join(1000);
+                }
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
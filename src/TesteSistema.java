@@ -1,3 +1,17 @@
+import hardware.Opcode;
+import hardware.Word;
+import program.Program;
+import program.Programs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
 public class TesteSistema {
     
     public static void main(String[] args) {
@@ -7,6 +21,11 @@ public class TesteSistema {
         testeRoundRobinComTresProcessos();
         testeStopDesalocaEscalona();
         testeFuncionamentoContinuo();
+        testePaginacaoSobDemanda();
+        testeUniaoDePaginas();
+        testeControleDeCarga();
+        testeSwapComprimido();
+        testeRecuperacaoEmSegundoPlano();
         
         System.out.println("=== TODOS OS TESTES CONCLUÍDOS ===");
     }
@@ -136,4 +155,161 @@ public class TesteSistema {
         
         System.out.println("   ✓ Teste funcionamento contínuo concluído\n");
     }
-} 
\ No newline at end of file
+
+    public static void testePaginacaoSobDemanda() {
+        System.out.println("5. Teste Paginação sob Demanda com memória apertada");
+        System.out.println("   tamMem=32, tamPg=4 (8 frames); swap comprimido, working set, união e recuperação desligados");
+        for (int cpus = 1; cpus <= 2; cpus++) {
+            for (String[] mistura : MISTURAS) {
+                confereMistura(cpus + " CPU(s), " + mistura.length + " processos", cpus, mistura, s -> { });
+            }
+        }
+        System.out.println("   ✓ Teste paginação sob demanda concluído\n");
+    }
+
+    public static void testeUniaoDePaginas() {
+        System.out.println("6. Teste União de Páginas Iguais com memória apertada");
+        System.out.println("   tamMem=32, tamPg=4; união examinando 4 frames por interrupção");
+        for (int cpus = 1; cpus <= 2; cpus++) {
+            for (String[] mistura : MISTURAS) {
+                confereMistura(cpus + " CPU(s), " + mistura.length + " processos", cpus, mistura,
+                        s -> s.so.getPageMerger().setPagesToScan(4));
+            }
+        }
+        System.out.println("   ✓ Teste união de páginas concluído\n");
+    }
+
+    public static void testeControleDeCarga() {
+        System.out.println("7. Teste Controle de Carga pelo Working Set com memória apertada");
+        System.out.println("   tamMem=32, tamPg=4; janela do working set de 200 instruções (suspende e retoma processos)");
+        for (int cpus = 1; cpus <= 2; cpus++) {
+            for (String[] mistura : MISTURAS) {
+                confereMistura(cpus + " CPU(s), " + mistura.length + " processos", cpus, mistura,
+                        s -> s.so.getLoadControl().setWindow(200));
+            }
+        }
+        System.out.println("   ✓ Teste controle de carga concluído\n");
+    }
+
+    public static void testeSwapComprimido() {
+        System.out.println("8. Teste Swap Comprimido com memória apertada");
+        System.out.println("   tamMem=32, tamPg=4; pool de 20% da memória (páginas sujas vão ao pool e dele ao disco)");
+        for (int cpus = 1; cpus <= 2; cpus++) {
+            for (String[] mistura : MISTURAS) {
+                confereMistura(cpus + " CPU(s), " + mistura.length + " processos", cpus, mistura,
+                        s -> s.so.getPager().getCompressedSwap().setPercent(20));
+            }
+        }
+        System.out.println("   ✓ Teste swap comprimido concluído\n");
+    }
+
+    public static void testeRecuperacaoEmSegundoPlano() {
+        System.out.println("9. Teste Recuperação em Segundo Plano com memória apertada");
+        System.out.println("   tamMem=32, tamPg=4; marcas de 25%/50% de frames livres, sozinha e com todos os recursos ligados");
+        for (int cpus = 1; cpus <= 2; cpus++) {
+            for (String[] mistura : MISTURAS) {
+                confereMistura(cpus + " CPU(s), " + mistura.length + " processos", cpus, mistura,
+                        s -> s.so.getPageReclaimer().setPercent(25));
+                confereMistura(cpus + " CPU(s), " + mistura.length + " processos, todos os recursos", cpus, mistura, s -> {
+                    s.so.getPageReclaimer().setPercent(25);
+                    s.so.getPager().getCompressedSwap().setPercent(20);
+                    s.so.getLoadControl().setWindow(200);
+                    s.so.getPageMerger().setPagesToScan(4);
+                });
+            }
+        }
+        System.out.println("   ✓ Teste recuperação em segundo plano concluído\n");
+    }
+
+    // ============== MISTURAS COM MEMÓRIA APERTADA ==============
+
+    // Misturas com mais páginas em uso do que frames: páginas vão e voltam do disco o tempo todo
+    private static final String[][] MISTURAS = {
+            {"fatorialV2", "fibonacci10", "PC", "fatorialV2", "fibonacci10", "PC", "fatorialV2", "fibonacci10v2", "PB", "PC"},
+            {"fatorial", "fibonacci10", "PC", "fatorial", "fibonacci10", "PC", "fatorialV2", "progMinimo", "PB", "fibonacci10", "PC", "PC"},
+    };
+
+    // Onde cada programa deixa o resultado e o valor esperado ({programa, primeira posição, valores...});
+    // fatorialV2 já escreve o resultado (120) com SYSCALL
+    private static final Object[][] RESULTADOS = {
+            {"fatorial", 10, 5040},
+            {"fibonacci10", 20, 0, 1, 1, 2, 3, 5, 8, 13, 21, 34},
+            {"fibonacci10v2", 20, 0, 1, 1, 2, 3, 5, 8, 13, 21, 34},
+            {"PC", 46, 1, 2, 3, 4, 5},
+            {"PB", 15, 5040},
+            {"progMinimo", 8, 999, 999, 999, 999, 999},
+    };
+
+    /**
+     * Roda a mistura no modo sem threads com 32 palavras de memória e páginas
+     * de 4 e confere que todos os processos terminaram e que cada um escreveu
+     * o resultado esperado. O swap comprimido, o controle de carga, a união de
+     * páginas iguais e a recuperação em segundo plano começam desligados;
+     * {@code config} liga o que o teste quer exercitar.
+     */
+    private static void confereMistura(String titulo, int cpus, String[] mistura, Consumer<Sistema> config) {
+        PrintStream console = System.out;
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(saida, true));
+        Sistema sistema;
+        try {
+            sistema = new Sistema(32, 4, 5, cpus);
+            sistema.so.getPager().getCompressedSwap().setPercent(0);
+            sistema.so.getLoadControl().setWindow(0);
+            sistema.so.getPageMerger().setPagesToScan(0);
+            sistema.so.getPageReclaimer().setPercent(0);
+            config.accept(sistema);
+            comSaidaDoResultado(sistema.so.getPrograms());
+            sistema.runHeadless(mistura, 120_000_000L);
+        } finally {
+            System.setOut(console);
+        }
+
+        Map<Integer, Integer> esperado = new TreeMap<>();
+        for (String nome : mistura) {
+            if (nome.equals("fatorialV2")) esperado.merge(120, 1, Integer::sum);
+            for (Object[] r : RESULTADOS) {
+                if (!r[0].equals(nome)) continue;
+                for (int i = 2; i < r.length; i++) esperado.merge((Integer) r[i], 1, Integer::sum);
+            }
+        }
+        Map<Integer, Integer> obtido = new TreeMap<>();
+        for (String linha : saida.toString().split("\n")) {
+            if (linha.startsWith("OUT: ")) obtido.merge(Integer.parseInt(linha.substring(5).trim()), 1, Integer::sum);
+        }
+        boolean terminaram = sistema.so.ps().isEmpty();
+        boolean ok = terminaram && obtido.equals(esperado);
+        System.out.println("   Assert " + titulo + ": " + (ok ? "OK" : "FALHOU"));
+        if (!ok) {
+            System.out.println("     terminaram: " + terminaram + " | esperado " + esperado + " | obtido " + obtido);
+        }
+    }
+
+    // Troca os programas da tabela por cópias que, no lugar do STOP, escrevem
+    // as posições do resultado (o código fica a partir da posição 100, depois
+    // dos dados que os programas usam)
+    private static void comSaidaDoResultado(Programs programas) {
+        List<Program> lista = new ArrayList<>(Arrays.asList(programas.progs));
+        for (Object[] r : RESULTADOS) {
+            for (int i = 0; i < lista.size(); i++) {
+                Program p = lista.get(i);
+                if (p == null || !p.name.equals(r[0])) continue;
+                List<Word> img = new ArrayList<>(Arrays.asList(p.image));
+                int saida = 100;
+                while (img.size() < saida) img.add(new Word(Opcode.DATA, -1, -1, -1));
+                for (int pos = 0; pos < img.size(); pos++) {
+                    if (img.get(pos).opc == Opcode.STOP) img.set(pos, new Word(Opcode.JMP, -1, -1, saida));
+                }
+                img.add(new Word(Opcode.LDI, 8, -1, 2)); // escrita
+                int inicio = (Integer) r[1];
+                for (int pos = inicio; pos < inicio + r.length - 2; pos++) {
+                    img.add(new Word(Opcode.LDI, 9, -1, pos));
+                    img.add(new Word(Opcode.SYSCALL, -1, -1, -1));
+                }
+                img.add(new Word(Opcode.STOP, -1, -1, -1));
+                lista.set(i, new Program(p.name, img.toArray(new Word[0])));
+            }
+        }
+        programas.progs = lista.toArray(new Program[0]);
+    }
+}
@@ -0,0 +1,48 @@
+package hardware;
+
+/**
+ * Bloco básico de código: sequência de instruções de um mesmo frame físico
+ * que termina em um desvio (JMP*), SYSCALL, STOP, antes de uma posição que
+ * não é instrução, ou no fim do frame.
+ *
+ * O bloco é descoberto na primeira visita e só é compilado (ver
+ * {@link BlockCompiler}) depois de atingir o limiar de execuções.
+ */
+public class BasicBlock {
+
+    /**
+     * Código compilado do bloco.
+     *
+     * @param cpu    CPU que executa o bloco
+     * @param budget máximo de instruções que podem ser executadas (fatia restante)
+     * @return número de instruções completadas sem interrupção
+     */
+    interface Code {
+        int run(CPU cpu, int budget);
+    }
+
+    final int start;    // endereço físico da primeira instrução
+    final int frame;    // frame físico que contém o bloco
+    final int version;  // versão do frame no InstructionCache quando o bloco foi descoberto
+    final int length;   // número de instruções
+    int execCount;      // visitas antes da compilação
+    Code code;          // null enquanto o bloco não é quente
+
+    // Segundo nível: blocos muito quentes são encadeados aos sucessores
+    int runCount;       // execuções compiladas (limiares de encadeamento e de tradução)
+    boolean linked;     // true = segue direto para o sucessor, sem voltar ao laço da CPU
+    BasicBlock succ0;   // cache dos dois últimos sucessores (desvio e fall-through)
+    BasicBlock succ1;
+
+    BasicBlock(int start, int frame, int version, int length) {
+        this.start = start;
+        this.frame = frame;
+        this.version = version;
+        this.length = length;
+    }
+
+    public int getStart() { return start; }
+    public int getLength() { return length; }
+    public boolean isCompiled() { return code != null; }
+    public boolean isLinked() { return linked; }
+}
@@ -0,0 +1,401 @@
+package hardware;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compilador de blocos básicos, ao lado do interpretador {@link CPU#step()}.
+ *
+ * Os blocos são identificados pelo endereço físico da primeira instrução e
+ * descobertos a partir da forma decodificada do {@link InstructionCache}.
+ * Quando um bloco atinge {@code hotThreshold} execuções, ele é compilado em
+ * uma cadeia de closures Java (uma por instrução, com ra/rb/p já fixados) que
+ * executa o bloco inteiro em uma única chamada, sem busca nem despacho.
+ *
+ * Um bloco deixa de valer quando o frame que o contém é escrito: a versão do
+ * frame no InstructionCache muda e o bloco é redescoberto na próxima visita.
+ *
+ * Segundo nível: depois de {@code linkThreshold} execuções compiladas o bloco
+ * passa a ser encadeado. A CPU então segue do fim do bloco direto para o
+ * sucessor (cache dos dois últimos sucessores, validado pelo endereço físico
+ * e pela versão do frame), rodando a fatia inteira em uma chamada. Quando o
+ * sucessor não confere (frame escrito ou página remapeada após page-out), a
+ * execução volta ao interpretador ({@link CPU#step()}).
+ *
+ * Terceiro nível: depois de {@code translateThreshold} execuções compiladas,
+ * o frame do bloco e os frames dos sucessores encadeados viram uma região
+ * traduzida para bytecode da JVM ({@link RegionTranslator}), em uma thread
+ * própria. Enquanto as versões dos frames não mudam, a CPU entra na região
+ * em vez de seguir pelas closures.
+ *
+ * Uma única instância é compartilhada por todos os núcleos (ver {@link Hw}):
+ * os blocos dependem só do conteúdo da memória física. Os contadores de
+ * visitas e estatísticas podem perder incrementos entre núcleos, o que só
+ * atrasa uma promoção.
+ */
+public class BlockCompiler {
+    public static final int DEFAULT_HOT_THRESHOLD = 8;
+    public static final int DEFAULT_LINK_THRESHOLD = 64;
+    public static final int DEFAULT_TRANSLATE_THRESHOLD = 512;
+    public static final int MAX_REGION_FRAMES = 4;
+
+    // Região traduzida: vale enquanto cada frame tem a versão da tradução
+    private static final class Region {
+        final int[] frames;
+        final int[] versions;
+        final BasicBlock.Code code;
+
+        Region(int[] frames, int[] versions, BasicBlock.Code code) {
+            this.frames = frames;
+            this.versions = versions;
+            this.code = code;
+        }
+
+        boolean covers(int frame, int version) {
+            for (int i = 0; i < frames.length; i++) {
+                if (frames[i] == frame) return versions[i] == version;
+            }
+            return false;
+        }
+    }
+
+    // operação de uma instrução, já especializada para seus operandos
+    private interface Op {
+        void exec(CPU c);
+    }
+
+    private static final Opcode[] OPCODES = Opcode.values();
+    private static final Interrupts NONE = Interrupts.noInterrupt;
+
+    private final InstructionCache icache;
+    private final int tamPg;
+    private final BasicBlock[] blocks; // blocks[endFisico] = bloco que começa nesse endereço
+    private int hotThreshold;
+    private int linkThreshold;
+    private int translateThreshold;
+
+    // terceiro nível: regions[frame] = região traduzida mais recente que contém o frame
+    private final AtomicReferenceArray<Region> regions;
+    private final Set<Long> translating = ConcurrentHashMap.newKeySet(); // (frame, versão) de quem pediu a tradução
+    private boolean translation;
+    private RegionTranslator translator;
+    private ExecutorService translatorThread;
+
+    // estatísticas
+    private long discovered;
+    private long compiled;
+    private long linked;
+    private long deopts;
+
+    public BlockCompiler(Memory mem) {
+        this.icache = mem.getInstructionCache();
+        this.tamPg = mem.getTamPg();
+        this.blocks = new BasicBlock[mem.getTamMem()];
+        this.hotThreshold = DEFAULT_HOT_THRESHOLD;
+        this.linkThreshold = DEFAULT_LINK_THRESHOLD;
+        this.translateThreshold = DEFAULT_TRANSLATE_THRESHOLD;
+        this.regions = new AtomicReferenceArray<>((mem.getTamMem() + tamPg - 1) / tamPg);
+        this.translation = true;
+    }
+
+    public void setHotThreshold(int hotThreshold) { this.hotThreshold = Math.max(1, hotThreshold); }
+    public int getHotThreshold() { return hotThreshold; }
+    public void setLinkThreshold(int linkThreshold) { this.linkThreshold = Math.max(1, linkThreshold); }
+    public int getLinkThreshold() { return linkThreshold; }
+    public long getDiscovered() { return discovered; }
+    public long getCompiled() { return compiled; }
+    public long getLinked() { return linked; }
+    public long getDeopts() { return deopts; }
+    public void setTranslateThreshold(int translateThreshold) { this.translateThreshold = Math.max(1, translateThreshold); }
+    public int getTranslateThreshold() { return translateThreshold; }
+    /** Liga/desliga o terceiro nível (regiões em bytecode da JVM). */
+    public synchronized void setTranslation(boolean translation) { this.translation = translation; }
+    public long getTranslated() { return translator == null ? 0 : translator.getTranslated(); }
+    public long getTranslationFailures() { return translator == null ? 0 : translator.getFailures(); }
+
+    /**
+     * Registra uma visita ao bloco que começa em {@code physPc}.
+     *
+     * @return o bloco compilado, ou null se o bloco ainda deve ser interpretado
+     */
+    BasicBlock lookup(int physPc) {
+        int ver = icache.ensureDecoded(physPc);
+        int frame = physPc / tamPg;
+        BasicBlock b = blocks[physPc];
+        if (b == null || b.version != ver) {
+            b = discover(physPc, frame, ver);
+            blocks[physPc] = b;
+        }
+        if (b.code == null) {
+            if (b.length == 0 || ++b.execCount < hotThreshold) {
+                return null;
+            }
+            b.code = compile(b);
+            compiled++;
+        }
+        return b;
+    }
+
+    /**
+     * Conta uma execução compilada do bloco e o promove ao encadeamento
+     * quando atinge o limiar.
+     *
+     * @return true se o bloco está encadeado
+     */
+    boolean countRun(BasicBlock b) {
+        if (b.runCount < Math.max(linkThreshold, translateThreshold) && ++b.runCount == translateThreshold) {
+            requestRegion(b);
+        }
+        if (!b.linked && b.runCount >= linkThreshold) {
+            b.linked = true;
+            linked++;
+        }
+        return b.linked;
+    }
+
+    /**
+     * Região traduzida que contém o bloco, se ainda vale para a versão do
+     * frame do bloco.
+     *
+     * @return código da região (começa no pc da CPU), ou null
+     */
+    BasicBlock.Code region(BasicBlock b) {
+        Region r = regions.get(b.frame);
+        return r != null && r.covers(b.frame, b.version) ? r.code : null;
+    }
+
+    // Pede a tradução do frame do bloco e dos frames dos sucessores encadeados
+    // (até MAX_REGION_FRAMES), copiando já a forma decodificada de cada um
+    private void requestRegion(BasicBlock b) {
+        RegionTranslator t = translator();
+        if (t == null || region(b) != null || !translating.add(key(b.frame, b.version))) return;
+        List<BasicBlock> members = new ArrayList<>();
+        List<Integer> frames = new ArrayList<>();
+        members.add(b);
+        frames.add(b.frame);
+        for (int i = 0; i < members.size() && frames.size() < MAX_REGION_FRAMES; i++) {
+            for (BasicBlock s : new BasicBlock[]{members.get(i).succ0, members.get(i).succ1}) {
+                if (s == null || s.code == null || icache.version(s.frame) != s.version) continue;
+                if (!frames.contains(s.frame)) {
+                    if (frames.size() == MAX_REGION_FRAMES) break;
+                    frames.add(s.frame);
+                }
+                if (!members.contains(s)) members.add(s);
+            }
+        }
+        int[] f = new int[frames.size()];
+        int[] v = new int[f.length];
+        for (int i = 0; i < f.length; i++) {
+            f[i] = frames.get(i);
+            v[i] = versionOf(members, f[i]);
+        }
+        RegionTranslator.Source src = snapshot(f, v);
+        if (src == null) {
+            translating.remove(key(b.frame, b.version));
+            return;
+        }
+        translatorThread.execute(() -> {
+            BasicBlock.Code code = t.translate(src);
+            if (code != null) {
+                Region r = new Region(f, v, code);
+                for (int frame : f) regions.set(frame, r);
+            }
+            translating.remove(key(b.frame, b.version));
+        });
+    }
+
+    private static int versionOf(List<BasicBlock> members, int frame) {
+        for (BasicBlock m : members) {
+            if (m.frame == frame) return m.version;
+        }
+        return -1;
+    }
+
+    // Cópia da forma decodificada dos frames; null se algum mudou desde a descoberta dos blocos
+    private RegionTranslator.Source snapshot(int[] frames, int[] versions) {
+        RegionTranslator.Source src = new RegionTranslator.Source(frames, versions, tamPg);
+        for (int i = 0; i < frames.length; i++) {
+            int start = frames[i] * tamPg;
+            if (icache.ensureDecoded(start) != versions[i]) return null;
+            for (int k = 0; k < tamPg; k++) {
+                int at = i * tamPg + k;
+                boolean inside = start + k < icache.opc.length;
+                src.opc[at] = inside ? icache.opc[start + k] : InstructionCache.INVALID;
+                src.ra[at] = inside ? icache.ra[start + k] : 0;
+                src.rb[at] = inside ? icache.rb[start + k] : 0;
+                src.p[at] = inside ? icache.p[start + k] : 0;
+            }
+            if (icache.version(frames[i]) != versions[i]) return null; // escrito durante a cópia
+        }
+        return src;
+    }
+
+    private static long key(int frame, int version) {
+        return ((long) frame << 32) | (version & 0xffffffffL);
+    }
+
+    // Tradutor criado no primeiro pedido; null se desligado ou sem javac na JVM
+    private synchronized RegionTranslator translator() {
+        if (!translation) return null;
+        if (translator == null) {
+            translator = new RegionTranslator(icache, tamPg, CPU.REGISTERS);
+            translatorThread = Executors.newSingleThreadExecutor(r -> {
+                Thread th = new Thread(r, "Tradutor-regioes");
+                th.setDaemon(true);
+                return th;
+            });
+        }
+        return translator.isAvailable() ? translator : null;
+    }
+
+    /**
+     * Sucessor de um bloco encadeado que começa em {@code physPc}.
+     * Consulta primeiro o cache de sucessores do bloco; na falta, procura
+     * (e compila, se quente) e guarda no cache.
+     *
+     * @return o sucessor compilado, ou null para voltar ao interpretador
+     */
+    BasicBlock successor(BasicBlock b, int physPc) {
+        BasicBlock s = b.succ0;
+        if (s != null && s.start == physPc && icache.version(s.frame) == s.version) return s;
+        s = b.succ1;
+        if (s != null && s.start == physPc && icache.version(s.frame) == s.version) return s;
+
+        s = lookup(physPc);
+        if (s == null) {
+            deopts++;
+            return null;
+        }
+        b.succ1 = b.succ0;
+        b.succ0 = s;
+        return s;
+    }
+
+    private BasicBlock discover(int start, int frame, int ver) {
+        int end = Math.min((frame + 1) * tamPg, icache.opc.length);
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            int o = icache.opc[i];
+            if (o == InstructionCache.INVALID) break; // interpretador trata a instrução inválida
+            length++;
+            if (isTerminator(OPCODES[o])) break;
+        }
+        discovered++;
+        return new BasicBlock(start, frame, ver, length);
+    }
+
+    private static boolean isTerminator(Opcode o) {
+        switch (o) {
+            case JMP: case JMPI: case JMPIG: case JMPIL: case JMPIE:
+            case JMPIM: case JMPIGM: case JMPILM: case JMPIEM:
+            case JMPIGK: case JMPILK: case JMPIEK: case JMPIGT:
+            case SYSCALL: case STOP:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isStore(Opcode o) {
+        return o == Opcode.STD || o == Opcode.STX;
+    }
+
+    // Monta a cadeia de trás para frente: cada elo executa sua instrução e chama o próximo
+    private BasicBlock.Code compile(BasicBlock b) {
+        BasicBlock.Code next = null;
+        for (int i = b.start + b.length - 1; i >= b.start; i--) {
+            Opcode o = OPCODES[icache.opc[i]];
+            Op op = op(o, icache.ra[i], icache.rb[i], icache.p[i]);
+            next = link(op, next, isStore(o) ? b : null);
+        }
+        return next;
+    }
+
+    private BasicBlock.Code link(Op op, BasicBlock.Code next, BasicBlock storeInto) {
+        if (next == null) {
+            return (c, budget) -> {
+                op.exec(c);
+                return c.irpt == NONE ? 1 : 0;
+            };
+        }
+        if (storeInto != null) {
+            // escrita pode atingir o próprio frame do bloco: se invalidou, sai do bloco
+            final BasicBlock b = storeInto;
+            return (c, budget) -> {
+                op.exec(c);
+                if (c.irpt != NONE) return 0;
+                if (budget == 1 || icache.version(b.frame) != b.version) return 1;
+                return 1 + next.run(c, budget - 1);
+            };
+        }
+        return (c, budget) -> {
+            op.exec(c);
+            if (c.irpt != NONE) return 0;
+            if (budget == 1) return 1;
+            return 1 + next.run(c, budget - 1);
+        };
+    }
+
+    // Mesma semântica de CPU.execute(), especializada para os operandos da instrução
+    private static Op op(Opcode o, int ra, int rb, int p) {
+        switch (o) {
+            case LDI:
+                return c -> { c.reg[ra] = p; c.pc++; };
+            case LDD:
+                return c -> { int d = c.readMemory(p); if (c.irpt == NONE) { c.reg[ra] = d; c.pc++; } };
+            case LDX:
+                return c -> { int d = c.readMemory(c.reg[rb]); if (c.irpt == NONE) { c.reg[ra] = d; c.pc++; } };
+            case STD:
+                return c -> { c.writeMemory(p, c.reg[ra]); if (c.irpt == NONE) { c.pc++; } };
+            case STX:
+                return c -> { c.writeMemory(c.reg[ra], c.reg[rb]); if (c.irpt == NONE) { c.pc++; } };
+            case MOVE:
+                return c -> { c.reg[ra] = c.reg[rb]; c.pc++; };
+            case ADD:
+                return c -> { int v = c.reg[ra] + c.reg[rb]; c.reg[ra] = v; if (c.verifyOverflow(v)) { c.pc++; } };
+            case ADDI:
+                return c -> { int v = c.reg[ra] + p; c.reg[ra] = v; if (c.verifyOverflow(v)) { c.pc++; } };
+            case SUB:
+                return c -> { int v = c.reg[ra] - c.reg[rb]; c.reg[ra] = v; if (c.verifyOverflow(v)) { c.pc++; } };
+            case SUBI:
+                return c -> { int v = c.reg[ra] - p; c.reg[ra] = v; if (c.verifyOverflow(v)) { c.pc++; } };
+            case MULT:
+                return c -> { int v = c.reg[ra] * c.reg[rb]; c.reg[ra] = v; if (c.verifyOverflow(v)) { c.pc++; } };
+            case JMP:
+                return c -> { if (c.isValidJump(p)) { c.pc = p; } };
+            case JMPIM:
+                return c -> { int d = c.readMemory(p); if (c.irpt == NONE && c.isValidJump(d)) { c.pc = d; } };
+            case JMPIG:
+                return c -> { if (c.reg[rb] > 0) { if (c.isValidJump(c.reg[ra])) { c.pc = c.reg[ra]; } } else { c.pc++; } };
+            case JMPIL:
+                return c -> { if (c.reg[rb] < 0) { if (c.isValidJump(c.reg[ra])) { c.pc = c.reg[ra]; } } else { c.pc++; } };
+            case JMPIE:
+                return c -> { if (c.reg[rb] == 0) { if (c.isValidJump(c.reg[ra])) { c.pc = c.reg[ra]; } } else { c.pc++; } };
+            case JMPIGK:
+                return c -> { if (c.reg[rb] > 0) { if (c.isValidJump(p)) { c.pc = p; } } else { c.pc++; } };
+            case JMPILK:
+                return c -> { if (c.reg[rb] < 0) { if (c.isValidJump(p)) { c.pc = p; } } else { c.pc++; } };
+            case JMPIEK:
+                return c -> { if (c.reg[rb] == 0) { if (c.isValidJump(p)) { c.pc = p; } } else { c.pc++; } };
+            case JMPIGM:
+                return c -> { if (c.reg[rb] > 0) { int d = c.readMemory(p); if (c.irpt == NONE && c.isValidJump(d)) { c.pc = d; } } else { c.pc++; } };
+            case JMPILM:
+                return c -> { if (c.reg[rb] < 0) { int d = c.readMemory(p); if (c.irpt == NONE && c.isValidJump(d)) { c.pc = d; } } else { c.pc++; } };
+            case JMPIEM:
+                return c -> { if (c.reg[rb] == 0) { int d = c.readMemory(p); if (c.irpt == NONE && c.isValidJump(d)) { c.pc = d; } } else { c.pc++; } };
+            case JMPIGT:
+                return c -> { if (c.reg[ra] > c.reg[rb]) { if (c.isValidJump(p)) { c.pc = p; } } else { c.pc++; } };
+            case SYSCALL:
+                return c -> { c.sysCall.handle(c); c.pc++; c.syscallDone = true; };
+            case STOP:
+                return c -> c.irpt = Interrupts.intSysCallStop;
+            default:
+                return c -> c.irpt = Interrupts.intInstrucaoInvalida;
+        }
+    }
+}
@@ -3,27 +3,36 @@ package hardware;
 import software.InterruptHandling;
 import software.SysCallHandling;
 import software.PCB;
+import software.PageTable;
 import software.SO;
+import util.Tracer;
 import util.Utilities;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 public class CPU implements Runnable {
     private int maxInt; // valores maximo e minimo para inteiros nesta cpu
     private int minInt;
 
     // CONTEXTO da CPU ...
-    private int pc;     // ... composto de program counter,
-    private Word ir;    // instruction register,
+    int pc;             // ... composto de program counter,
 
-    private int[] reg;  // registradores da CPU
-    private Interrupts irpt; // durante instrucao, interrupcao pode ser sinalizada
+    int[] reg;          // registradores da CPU
+    Interrupts irpt;    // durante instrucao, interrupcao pode ser sinalizada
     // FIM CONTEXTO DA CPU: tudo que precisa sobre o estado de um processo para
     // executa-lo
     // nas proximas versoes isto pode modificar
 
     private Memory mem;   // referência à memória física
+    private InstructionCache icache; // instruções pré-decodificadas da memória física
+    private int tamPg;    // tamanho da página, para a tradução via TLB
+    private TLB tlb;      // cache de traduções página → frame desta CPU
+    private BlockCompiler blocks;    // blocos básicos compilados (motor ao lado do interpretador)
+    private boolean blockExecution;  // se true, run() executa blocos quentes compilados
+    private static final Opcode[] OPCODES = Opcode.values();
 
     private InterruptHandling ih;    // significa desvio para rotinas de tratamento de Int - se int ligada, desvia
-    private SysCallHandling sysCall; // significa desvio para tratamento de chamadas de sistema
+    SysCallHandling sysCall;         // significa desvio para tratamento de chamadas de sistema
 
     private boolean cpuStop;    // flag para parar CPU - caso de interrupcao que acaba o processo, ou chamada stop -
     // nesta versao acaba o sistema no fim do prog
@@ -31,28 +40,64 @@ public class CPU implements Runnable {
     // auxilio aa depuração
     private boolean debug;      // se true entao mostra cada instrucao em execucao
     private Utilities u;        // para debug (dump)
+    private Tracer tracer;      // trace binário (instruções e traduções)
+    private boolean tracing;    // trace ligado nesta fatia: lido do Tracer uma vez por fatia/passo
+    private Profiler profiler;  // contadores por opcode / por pc
+    private boolean profiling;  // profiler ligado nesta fatia (mesma regra do tracing)
+    private boolean verified;   // processo corrente passou pelo Verifier (ver software.Verifier)
+    private int faultAddress = -1; // endereço lógico do último page fault
+    private boolean faultWrite;    // o último page fault foi de escrita
 
     // Controle de preempção por tempo
     private int delta;          // fatia de tempo em número de instruções
     private int instructionCount; // contador de instruções executadas na fatia atual
-    private boolean preemptive; // se false, não gera TIMER (modo exec debug)
+    private boolean preemptive; // se false, fatia de EXEC_SLICE instruções (exec em modo debug)
+
+    // exec em modo debug: o processo roda sem TIMER até este limite (contra
+    // laço infinito); ao atingi-lo volta a ser escalonado com preempção
+    public static final int EXEC_SLICE = 1000;
+
+    public static final int REGISTERS = 10;
     
     // Referência ao SO para tradução de endereços
     private SO so;
+
+    // Índice deste núcleo em Hw.cpus
+    private final int id;
     
     // Controle de thread
-    private boolean active;
+    private volatile boolean active;
+
+    // Segurado enquanto o núcleo executa instruções (solto antes de tratar as
+    // interrupções): quem o adquire sabe que nenhuma instrução deste núcleo
+    // está no meio, com uma tradução já feita ou um bit R/D por marcar
+    private final ReentrantLock execLock = new ReentrantLock();
+
+    // true logo após uma SYSCALL: runQuantum() devolve o controle ao laço da CPU
+    boolean syscallDone;
 
     // Referência ao PCB corrente (para exec debug e interrupções)
     private PCB currentPCB;
 
-    public CPU(Memory _mem, boolean _debug) { // ref a MEMORIA passada na criacao da CPU
+    public CPU(Memory _mem, boolean _debug) {
+        this(_mem, _debug, 0, new BlockCompiler(_mem));
+    }
+
+    public CPU(Memory _mem, boolean _debug, int _id, BlockCompiler _blocks) { // ref a MEMORIA passada na criacao da CPU
+        id = _id;                  // índice do núcleo (SMP)
         maxInt = 32767;            // capacidade de representacao modelada
         minInt = -32767;           // se exceder deve gerar interrupcao de overflow
         mem = _mem;              // usa o atributo 'mem' para acessar a memoria
-        reg = new int[10];         // aloca o espaço dos registradores - regs 8 e 9 usados somente para IO
-
-        debug = _debug;            // se true, print da instrucao em execucao
+        icache = mem.getInstructionCache();
+        tamPg = mem.getTamPg();
+        tlb = new TLB();
+        blocks = _blocks;
+        blockExecution = true;
+        reg = new int[REGISTERS];         // aloca o espaço dos registradores - regs 8 e 9 usados somente para IO
+
+        debug = _debug;            // se true, registra cada instrucao no trace
+        tracer = new Tracer();     // substituído pelo trace compartilhado do Hw
+        profiler = new Profiler(_id + 1); // idem
         
         // Defaults para preempção
         delta = 5;
@@ -74,6 +119,14 @@ public class CPU implements Runnable {
 
     public PCB getCurrentPCB() { return currentPCB; }
 
+    public int getId() { return id; }
+
+    public TLB getTlb() { return tlb; }
+
+    public BlockCompiler getBlockCompiler() { return blocks; }
+
+    public void setBlockExecution(boolean blockExecution) { this.blockExecution = blockExecution; }
+
     public void setAddressOfHandlers(InterruptHandling _ih, SysCallHandling _sysCall) {
         ih = _ih;                  // aponta para rotinas de tratamento de int
         sysCall = _sysCall;        // aponta para rotinas de tratamento de chamadas de sistema
@@ -81,6 +134,14 @@ public class CPU implements Runnable {
 
 
 
+    public void setTracer(Tracer _tracer) {
+        tracer = _tracer;
+    }
+
+    public void setProfiler(Profiler _profiler) {
+        profiler = _profiler;
+    }
+
     public void setUtilities(Utilities _u) {
         u = _u;                     // aponta para rotinas utilitárias - fazer dump da memória na tela
     }
@@ -92,7 +153,9 @@ public class CPU implements Runnable {
         instructionCount = 0; // Reset contador de instruções
         cpuStop = false;
         debug = pcb.trace;
+        verified = pcb.verified;
         currentPCB = pcb;
+        tlb.flush(); // troca de contexto: traduções do processo anterior não valem mais
     }
 
     public void saveContext(PCB pcb) {
@@ -100,7 +163,7 @@ public class CPU implements Runnable {
         System.arraycopy(reg, 0, pcb.reg, 0, reg.length);
     }
 
-    private boolean verifyOverflow(int v) {             // toda operacao matematica deve avaliar se ocorre overflow
+    boolean verifyOverflow(int v) {             // toda operacao matematica deve avaliar se ocorre overflow
         if ((v < minInt) || (v > maxInt)) {
             irpt = Interrupts.intOverflow;            // se houver liga interrupcao no meio da exec da instrucao
             return false;
@@ -109,7 +172,7 @@ public class CPU implements Runnable {
         return true;
     }
 
-    private boolean isValidAddress(int addr) {
+    boolean isValidAddress(int addr) {
         if (addr < 0 || addr >= mem.getTamMem()) {
             irpt = Interrupts.intEnderecoInvalido;
             return false;
@@ -117,61 +180,128 @@ public class CPU implements Runnable {
         return true;
     }
 
-    // Tradução de endereço lógico para físico via SO
-    private int translateAddress(int logicalAddr) {
+    // Destino de desvio é endereço lógico: vale o espaço lógico do processo,
+    // que com paginação sob demanda pode ser maior que a memória física
+    boolean isValidJump(int addr) {
+        PCB p = currentPCB;
+        int limit = so != null && p != null ? p.numPages * tamPg : mem.getTamMem();
+        if (addr < 0 || addr >= limit) {
+            irpt = Interrupts.intEnderecoInvalido;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tradução de endereço lógico para físico: consulta a TLB e, na falta, o SO.
+     * Marca o acesso na tabela de páginas ({@code access} = REFERENCED, ou
+     * REFERENCED|DIRTY na escrita). Página ausente: liga intPageFault e
+     * retorna -1; a instrução não completa e é repetida depois do page-in.
+     */
+    private int translateAddress(int logicalAddr, int access) {
         if (so != null) {
-            PCB pcbForAccess = (so.scheduler.getRunning() != null) ? so.scheduler.getRunning() : currentPCB;
+            PCB pcbForAccess = currentPCB; // atualizado na troca de contexto / laço da CPU
             if (pcbForAccess != null) {
-                return so.traduzEndereco(pcbForAccess, logicalAddr);
+                int physicalAddr;
+                int page = logicalAddr / tamPg;
+                // trace precisa passar pelo SO para registrar cada tradução
+                if (logicalAddr < 0 || tracing) {
+                    physicalAddr = so.traduzEndereco(pcbForAccess, logicalAddr);
+                } else {
+                    int offset = logicalAddr - page * tamPg;
+                    int frame = tlb.lookup(pcbForAccess.pid, page);
+                    if (frame >= 0) {
+                        physicalAddr = frame * tamPg + offset;
+                    } else {
+                        physicalAddr = so.traduzEndereco(pcbForAccess, logicalAddr);
+                        if (physicalAddr >= 0) tlb.insert(pcbForAccess.pid, page, physicalAddr / tamPg);
+                    }
+                }
+                PageTable pt = pcbForAccess.pageTable;
+                // página ausente, ou escrita em página compartilhada (copy-on-write)
+                if (physicalAddr < 0 || (access & PageTable.DIRTY) != 0 && pt != null && pt.isShared(page)) {
+                    irpt = Interrupts.intPageFault;
+                    faultAddress = logicalAddr;
+                    faultWrite = (access & PageTable.DIRTY) != 0;
+                    return -1;
+                }
+                if (pt != null) pt.touch(page, access);
+                return physicalAddr;
             }
         }
         return logicalAddr; // Fallback para compatibilidade (não deve ocorrer)
     }
 
-    // Acesso à memória com tradução
-    private Word readMemory(int logicalAddr) {
+    // Tradução + validação do endereço físico; retorna -1 (e liga interrupção) se inválido
+    private int physicalAddress(int logicalAddr) {
+        return physicalAddress(logicalAddr, PageTable.REFERENCED);
+    }
+
+    private int physicalAddress(int logicalAddr, int access) {
         int physicalAddr;
         try {
-            physicalAddr = translateAddress(logicalAddr);
+            physicalAddr = translateAddress(logicalAddr, access);
         } catch (RuntimeException e) {
             irpt = Interrupts.intEnderecoInvalido;
-            return new Word(Opcode.___, -1, -1, -1);
+            return -1;
+        }
+        if (physicalAddr < 0 && irpt == Interrupts.intPageFault) {
+            return -1;
         }
         if (!isValidAddress(physicalAddr)) {
             irpt = Interrupts.intEnderecoInvalido;
-            return new Word(Opcode.___, -1, -1, -1);
+            return -1;
         }
-        return mem.read(physicalAddr);
+        return physicalAddr;
     }
 
-    private void writeMemory(int logicalAddr, Word word) {
-        int physicalAddr;
+    // Busca de instrução nas regiões traduzidas (ver RegionTranslator): mesma
+    // tradução do pc que o interpretador faz, com bit R e page fault
+    int fetchAddress(int logicalPc) {
+        return physicalAddress(logicalPc);
+    }
+
+    // Acesso à memória com tradução: lê o dado (campo p) da posição lógica
+    int readMemory(int logicalAddr) {
+        int physicalAddr = physicalAddress(logicalAddr);
+        if (physicalAddr < 0) {
+            return -1;
+        }
+        return mem.readData(physicalAddr);
+    }
+
+    // Grava DATA com o valor na posição lógica, sem alocar Word
+    void writeMemory(int logicalAddr, int value) {
+        int physicalAddr = physicalAddress(logicalAddr, PageTable.REFERENCED | PageTable.DIRTY);
+        if (physicalAddr < 0) {
+            return;
+        }
+        mem.writeData(physicalAddr, value);
+    }
+
+    // Alvo constante de processo verificado: já está no espaço lógico, então a
+    // tradução resulta sempre em endereço físico válido (sem isValidAddress)
+    private int readMemoryVerified(int logicalAddr) {
         try {
-            physicalAddr = translateAddress(logicalAddr);
+            int physicalAddr = translateAddress(logicalAddr, PageTable.REFERENCED);
+            return physicalAddr < 0 ? -1 : mem.readData(physicalAddr); // -1: page fault já sinalizado
         } catch (RuntimeException e) {
-            irpt = Interrupts.intEnderecoInvalido;
-            return;
+            irpt = Interrupts.intEnderecoInvalido; // página liberada por outro núcleo (rm)
+            return -1;
         }
-        if (!isValidAddress(physicalAddr)) {
+    }
+
+    private void writeMemoryVerified(int logicalAddr, int value) {
+        try {
+            int physicalAddr = translateAddress(logicalAddr, PageTable.REFERENCED | PageTable.DIRTY);
+            if (physicalAddr >= 0) mem.writeData(physicalAddr, value);
+        } catch (RuntimeException e) {
             irpt = Interrupts.intEnderecoInvalido;
-            return;
         }
-        mem.write(physicalAddr, word);
     }
 
     public boolean isValidInstruction(Opcode opc) {
-        if (opc == null) return false;
-        switch(opc) {
-            case JMP: case JMPI: case JMPIG: case JMPIL: case JMPIE:
-            case JMPIM: case JMPIGM: case JMPILM: case JMPIEM:
-            case JMPIGK: case JMPILK: case JMPIEK: case JMPIGT:
-            case ADDI: case SUBI: case ADD: case SUB: case MULT:
-            case LDI: case LDD: case STD: case LDX: case STX: case MOVE:
-            case SYSCALL: case STOP:
-                return true;
-            default:
-                return false;
-        }
+        return InstructionCache.isValidInstruction(opc);
     }
 
     public void setContext(int _pc) {
@@ -182,124 +312,358 @@ public class CPU implements Runnable {
 
     public void step() {
         if (cpuStop) return;
-        
+        tracing = debug || tracer.isEnabled();
+        profiling = profiler.isEnabled();
+
+        // Incrementar contador de instruções (o TIMER é verificado no fim da instrução)
+        execLock.lock();
+        try {
+            instructionCount += execute();
+        } finally {
+            execLock.unlock();
+        }
+        syscallDone = false;
+        endOfInstruction();
+    }
+
+    /**
+     * Executa o bloco básico que começa no pc, se ele já estiver compilado;
+     * caso contrário interpreta uma instrução com {@link #step()}.
+     * O bloco roda no máximo até o fim da fatia (delta), então o TIMER
+     * continua ocorrendo exatamente na mesma instrução que no interpretador.
+     * Blocos encadeados (segundo nível) seguem direto para o sucessor até a
+     * fatia acabar, ocorrer uma interrupção ou o sucessor não estar compilado.
+     */
+    public void stepBlock() {
+        if (cpuStop) return;
+        if (debug || !preemptive || tracer.isEnabled() || profiler.isEnabled()) { step(); return; }
+        tracing = false;
+        profiling = false;
+
+        int done;
+        execLock.lock();
+        try {
+            done = runCompiled(delta - instructionCount);
+        } finally {
+            execLock.unlock();
+        }
+        if (done < 0) {
+            step();
+            return;
+        }
+        instructionCount += done;
+        syscallDone = false;
+        endOfInstruction();
+    }
+
+    /**
+     * Executa uma fatia de tempo inteira (até delta instruções) em um laço
+     * apertado, com o PCB já carregado no contexto. Só retorna ao laço da CPU
+     * (e, portanto, ao escalonador) em uma interrupção — inclusive o TIMER do
+     * fim da fatia — ou depois de uma SYSCALL.
+     *
+     * @return número de instruções completadas
+     */
+    public int runQuantum() {
+        if (cpuStop) return 0;
+        syscallDone = false;
+        int total = 0;
+        tracing = debug || tracer.isEnabled();
+        profiling = profiler.isEnabled();
+        // trace e profiler contam instrução a instrução: só o interpretador simples
+        boolean compiled = blockExecution && !tracing && !profiling && preemptive;
+        boolean interrupted;
+        execLock.lock();
+        try {
+            while (true) {
+                int done = compiled ? runCompiled(delta - instructionCount) : -1;
+                if (done < 0) {
+                    done = execute();
+                }
+                instructionCount += done;
+                total += done;
+                if (irpt != Interrupts.noInterrupt || instructionCount >= sliceLength()) {
+                    interrupted = true;
+                    break;
+                }
+                if (syscallDone) {
+                    syscallDone = false;
+                    interrupted = false;
+                    break;
+                }
+            }
+        } finally {
+            execLock.unlock();
+        }
+        if (interrupted) {
+            endOfInstruction(); // tratadores podem parar os núcleos (ver execLock)
+        }
+        return total;
+    }
+
+    private int sliceLength() {
+        return preemptive ? delta : EXEC_SLICE;
+    }
+
+    /** Trava de execução do núcleo: adquirida, nenhuma instrução dele está em andamento. */
+    public ReentrantLock getExecLock() { return execLock; }
+
+    // Fim de instrução/bloco: gera o TIMER no fim da fatia e trata a interrupção pendente
+    private void endOfInstruction() {
+        if (irpt == Interrupts.noInterrupt && instructionCount >= sliceLength()) {
+            if (!preemptive && currentPCB != null) {
+                currentPCB.nonPreemptive = false; // limite do exec: volta ao round-robin
+                preemptive = true;
+            }
+            irpt = Interrupts.intTimer;
+            instructionCount = 0;
+        }
+
+        // VERIFICA INTERRUPÇÃO
+        if (irpt != Interrupts.noInterrupt) {
+            Interrupts handled = irpt;
+            // page fault gasta uma posição da fatia: se as faltas se repetem sem
+            // bloquear (páginas da mesma instrução disputando frames), o TIMER
+            // ainda vem e os outros processos andam
+            if (handled == Interrupts.intPageFault && preemptive) instructionCount++;
+            ih.handle(this, irpt);
+            irpt = Interrupts.noInterrupt;
+            // processo continuou no núcleo (falta sem IO) e a fatia acabou
+            if (handled == Interrupts.intPageFault && preemptive && instructionCount >= delta) {
+                instructionCount = 0;
+                ih.handle(this, Interrupts.intTimer);
+            }
+        }
+    }
+
+    /**
+     * Executa blocos compilados a partir do pc, até {@code budget} instruções.
+     *
+     * @return instruções completadas, ou -1 se não há bloco compilado no pc
+     *         (o chamador interpreta a instrução)
+     */
+    private int runCompiled(int budget) {
+        int physPc = physicalAddress(pc);
+        if (physPc < 0) {
+            irpt = Interrupts.noInterrupt; // o interpretador repete a busca e gera a interrupção
+            return -1;
+        }
+        BasicBlock b = blocks.lookup(physPc);
+        if (b == null) {
+            return -1;
+        }
+
+        int total = 0;
+        while (true) {
+            BasicBlock.Code region = blocks.region(b);
+            int done = (region != null ? region : b.code).run(this, budget);
+            total += done;
+            budget -= done;
+            if (irpt != Interrupts.noInterrupt || budget <= 0 || syscallDone || !blocks.countRun(b)) break;
+
+            int nextPc = physicalAddress(pc);
+            if (nextPc < 0) break; // falha na busca: tratada no fim da instrução, como no step()
+            b = blocks.successor(b, nextPc);
+            if (b == null) break;  // volta ao interpretador
+        }
+        return total;
+    }
+
+    // Busca, decodifica (via cache de instruções) e executa uma instrução,
+    // ou um grupo de instruções fundidas; retorna quantas instruções completou
+    private int execute() {
         // --------------------------------------------------------------------------------------------------
         // FASE DE FETCH
-        ir = readMemory(pc);  // Usa tradução de endereços
-        if (irpt != Interrupts.noInterrupt) {
-            return; // Erro de acesso à memória
+        int physPc = physicalAddress(pc);  // Usa tradução de endereços
+        if (physPc < 0) {
+            return 0; // Erro de acesso à memória
         }
+        icache.ensureDecoded(physPc);
+
+        // superinstrução: só se o grupo inteiro cabe no que resta da fatia e o
+        // trace está desligado (o trace registra as instruções originais, uma a uma)
+        int kind = icache.fused[physPc];
+        if (kind != InstructionCache.NOT_FUSED && !tracing && !profiling
+                && (!preemptive || delta - instructionCount >= InstructionCache.fusedLength(kind))) {
+            return executeFused(kind, physPc);
+        }
+
+        if (tracing) {
+            PCB traced = currentPCB;
+            tracer.instruction(id, traced == null ? -1 : traced.pid, pc,
+                    icache.opc[physPc], icache.ra[physPc], icache.rb[physPc], icache.p[physPc], reg);
+        }
+        if (profiling) {
+            return executeProfiled(physPc);
+        }
+        return executeDecoded(physPc);
+    }
 
-        if (debug) {
-            System.out.print("                                              regs: ");
-            for (int i = 0; i < 10; i++) {
-                System.out.print(" r[" + i + "]:" + reg[i]);
+    // Executa e conta a instrução no profiler (desvio tomado = pc não avançou para pc+1)
+    private int executeProfiled(int physPc) {
+        int pcBefore = pc;
+        int done = executeDecoded(physPc);
+        if (done > 0) {
+            int op = icache.opc[physPc];
+            PCB pcb = currentPCB;
+            Profiler.PcProfile prof = null;
+            if (pcb != null) {
+                if (pcb.profile == null) {
+                    pcb.profile = profiler.newProfile(pcb.pid, pcb.nome, pcb.numPages * tamPg);
+                }
+                prof = pcb.profile;
             }
-            System.out.println();
+            boolean taken = pc != pcBefore + 1 && Profiler.isBranch(OPCODES[op]);
+            profiler.count(id, prof, pcBefore, op, taken);
         }
-        if (debug) {
-            System.out.print("                      pc: " + pc + "       exec: ");
-            u.dump(ir);
+        return done;
+    }
+
+    /**
+     * Executa um grupo de instruções fundidas (ver {@link InstructionCache})
+     * em um único despacho. Cada parte tem a mesma semântica da instrução
+     * original; se uma parte gera interrupção, as seguintes não executam.
+     *
+     * @return número de instruções completadas
+     */
+    private int executeFused(int kind, int i) {
+        switch (kind) {
+            case InstructionCache.FUSED_LDI_LDI:
+                reg[icache.ra[i]] = icache.p[i];
+                reg[icache.ra[i + 1]] = icache.p[i + 1];
+                pc += 2;
+                return 2;
+            case InstructionCache.FUSED_LDI_LDI_SYSCALL:
+                reg[icache.ra[i]] = icache.p[i];
+                reg[icache.ra[i + 1]] = icache.p[i + 1];
+                pc += 2;
+                sysCall.handle(this); pc++; syscallDone = true;
+                return irpt == Interrupts.noInterrupt ? 3 : 2;
+            case InstructionCache.FUSED_LDI_BRANCH:
+                reg[icache.ra[i]] = icache.p[i];
+                pc++;
+                return 1 + executeDecoded(i + 1);
+            case InstructionCache.FUSED_ALU_JMP:
+                if (executeDecoded(i) == 0) return 0;
+                int dest = icache.p[i + 1];
+                if (!verified && !isValidJump(dest)) return 1;
+                pc = dest;
+                return 2;
+            default: // FUSED_ALU_BRANCH
+                if (executeDecoded(i) == 0) return 0;
+                return 1 + executeDecoded(i + 1);
         }
+    }
 
-        if (!isValidInstruction(ir.opc)) {
+    // Executa a instrução já decodificada na posição física i; retorna 1 se completou
+    private int executeDecoded(int i) {
+        int op = icache.opc[i];
+        int ra = icache.ra[i];
+        int rb = icache.rb[i];
+        int p = icache.p[i];
+
+        if (op == InstructionCache.INVALID) {
             irpt = Interrupts.intInstrucaoInvalida;
-            return;
+            return 0;
         }
 
-        switch (ir.opc) {
+        switch (OPCODES[op]) {
             case LDI:
-                reg[ir.ra] = ir.p; pc++; break;
+                reg[ra] = p; pc++; break;
             case LDD:
-                Word dataWord = readMemory(ir.p);
-                if (irpt == Interrupts.noInterrupt) { reg[ir.ra] = dataWord.p; pc++; }
+                int data = verified ? readMemoryVerified(p) : readMemory(p);
+                if (irpt == Interrupts.noInterrupt) { reg[ra] = data; pc++; }
                 break;
             case LDX:
-                Word dataWordX = readMemory(reg[ir.rb]);
-                if (irpt == Interrupts.noInterrupt) { reg[ir.ra] = dataWordX.p; pc++; }
+                int dataX = readMemory(reg[rb]);
+                if (irpt == Interrupts.noInterrupt) { reg[ra] = dataX; pc++; }
                 break;
             case STD:
-                Word storeWord = new Word(Opcode.DATA, -1, -1, reg[ir.ra]);
-                writeMemory(ir.p, storeWord);
-                if (irpt == Interrupts.noInterrupt) { pc++; if (debug) { System.out.print("                                  "); u.dump(ir.p, ir.p + 1); } }
+                if (verified) { writeMemoryVerified(p, reg[ra]); } else { writeMemory(p, reg[ra]); }
+                if (irpt == Interrupts.noInterrupt) { pc++; }
                 break;
             case STX:
-                Word storeWordX = new Word(Opcode.DATA, -1, -1, reg[ir.rb]);
-                writeMemory(reg[ir.ra], storeWordX);
+                writeMemory(reg[ra], reg[rb]);
                 if (irpt == Interrupts.noInterrupt) { pc++; }
                 break;
             case MOVE:
-                reg[ir.ra] = reg[ir.rb]; pc++; break;
+                reg[ra] = reg[rb]; pc++; break;
             case ADD:
-                reg[ir.ra] = reg[ir.ra] + reg[ir.rb]; if (!verifyOverflow(reg[ir.ra])) { return; } pc++; break;
+                reg[ra] = reg[ra] + reg[rb]; if (!verifyOverflow(reg[ra])) { return 0; } pc++; break;
             case ADDI:
-                reg[ir.ra] = reg[ir.ra] + ir.p; if (!verifyOverflow(reg[ir.ra])) { return; } pc++; break;
+                reg[ra] = reg[ra] + p; if (!verifyOverflow(reg[ra])) { return 0; } pc++; break;
             case SUB:
-                reg[ir.ra] = reg[ir.ra] - reg[ir.rb]; if (!verifyOverflow(reg[ir.ra])) { return; } pc++; break;
+                reg[ra] = reg[ra] - reg[rb]; if (!verifyOverflow(reg[ra])) { return 0; } pc++; break;
             case SUBI:
-                reg[ir.ra] = reg[ir.ra] - ir.p; if (!verifyOverflow(reg[ir.ra])) { return; } pc++; break;
+                reg[ra] = reg[ra] - p; if (!verifyOverflow(reg[ra])) { return 0; } pc++; break;
             case MULT:
-                reg[ir.ra] = reg[ir.ra] * reg[ir.rb]; if (!verifyOverflow(reg[ir.ra])) { return; } pc++; break;
+                reg[ra] = reg[ra] * reg[rb]; if (!verifyOverflow(reg[ra])) { return 0; } pc++; break;
             case JMP:
-                if (!isValidAddress(ir.p)) { return; } pc = ir.p; break;
+                if (!verified && !isValidJump(p)) { return 0; } pc = p; break;
             case JMPIM:
-                Word jumpAddr = readMemory(ir.p);
-                if (irpt == Interrupts.noInterrupt) { int destIM = jumpAddr.p; if (!isValidAddress(destIM)) { return; } pc = destIM; }
+                int destIM = verified ? readMemoryVerified(p) : readMemory(p);
+                if (irpt == Interrupts.noInterrupt) { if (!isValidJump(destIM)) { return 0; } pc = destIM; }
                 break;
             case JMPIG:
-                if (reg[ir.rb] > 0) { if (!isValidAddress(reg[ir.ra])) { return; } pc = reg[ir.ra]; } else { pc++; } break;
+                if (reg[rb] > 0) { if (!isValidJump(reg[ra])) { return 0; } pc = reg[ra]; } else { pc++; } break;
             case JMPIGK:
-                if (reg[ir.rb] > 0) { if (!isValidAddress(ir.p)) { return; } pc = ir.p; } else { pc++; } break;
+                if (reg[rb] > 0) { if (!verified && !isValidJump(p)) { return 0; } pc = p; } else { pc++; } break;
             case JMPILK:
-                if (reg[ir.rb] < 0) { if (!isValidAddress(ir.p)) { return; } pc = ir.p; } else { pc++; } break;
+                if (reg[rb] < 0) { if (!verified && !isValidJump(p)) { return 0; } pc = p; } else { pc++; } break;
             case JMPIEK:
-                if (reg[ir.rb] == 0) { if (!isValidAddress(ir.p)) { return; } pc = ir.p; } else { pc++; } break;
+                if (reg[rb] == 0) { if (!verified && !isValidJump(p)) { return 0; } pc = p; } else { pc++; } break;
             case JMPIL:
-                if (reg[ir.rb] < 0) { if (!isValidAddress(reg[ir.ra])) { return; } pc = reg[ir.ra]; } else { pc++; } break;
+                if (reg[rb] < 0) { if (!isValidJump(reg[ra])) { return 0; } pc = reg[ra]; } else { pc++; } break;
             case JMPIE:
-                if (reg[ir.rb] == 0) { if (!isValidAddress(reg[ir.ra])) { return; } pc = reg[ir.ra]; } else { pc++; } break;
+                if (reg[rb] == 0) { if (!isValidJump(reg[ra])) { return 0; } pc = reg[ra]; } else { pc++; } break;
             case JMPIGM:
-                if (reg[ir.rb] > 0) { Word jumpAddrIGM = readMemory(ir.p); if (irpt == Interrupts.noInterrupt) { int destIGM = jumpAddrIGM.p; if (!isValidAddress(destIGM)) { return; } pc = destIGM; } } else { pc++; } break;
+                if (reg[rb] > 0) { int destIGM = verified ? readMemoryVerified(p) : readMemory(p); if (irpt == Interrupts.noInterrupt) { if (!isValidJump(destIGM)) { return 0; } pc = destIGM; } } else { pc++; } break;
             case JMPILM:
-                if (reg[ir.rb] < 0) { Word jumpAddrILM = readMemory(ir.p); if (irpt == Interrupts.noInterrupt) { int destILM = jumpAddrILM.p; if (!isValidAddress(destILM)) { return; } pc = destILM; } } else { pc++; } break;
+                if (reg[rb] < 0) { int destILM = verified ? readMemoryVerified(p) : readMemory(p); if (irpt == Interrupts.noInterrupt) { if (!isValidJump(destILM)) { return 0; } pc = destILM; } } else { pc++; } break;
             case JMPIEM:
-                if (reg[ir.rb] == 0) { Word jumpAddrIEM = readMemory(ir.p); if (irpt == Interrupts.noInterrupt) { int destIEM = jumpAddrIEM.p; if (!isValidAddress(destIEM)) { return; } pc = destIEM; } } else { pc++; } break;
+                if (reg[rb] == 0) { int destIEM = verified ? readMemoryVerified(p) : readMemory(p); if (irpt == Interrupts.noInterrupt) { if (!isValidJump(destIEM)) { return 0; } pc = destIEM; } } else { pc++; } break;
             case JMPIGT:
-                if (reg[ir.ra] > reg[ir.rb]) { if (!isValidAddress(ir.p)) { return; } pc = ir.p; } else { pc++; } break;
-            case DATA:
-                irpt = Interrupts.intInstrucaoInvalida; break;
+                if (reg[ra] > reg[rb]) { if (!verified && !isValidJump(p)) { return 0; } pc = p; } else { pc++; } break;
             case SYSCALL:
-                sysCall.handle(); pc++; break;
+                sysCall.handle(this); pc++; syscallDone = true; break;
             case STOP:
                 irpt = Interrupts.intSysCallStop; break;
             default:
                 irpt = Interrupts.intInstrucaoInvalida; break;
         }
+        return irpt == Interrupts.noInterrupt ? 1 : 0;
+    }
 
-        // Incrementar contador de instruções e verificar preempção
-        if (irpt == Interrupts.noInterrupt) {
-            instructionCount++;
-            if (preemptive && instructionCount >= delta) {
-                irpt = Interrupts.intTimer;
-                instructionCount = 0;
-            }
+    /**
+     * Uma iteração do laço da CPU: pega o processo em execução neste núcleo
+     * (despachando um, se o núcleo estiver livre) e executa uma fatia.
+     * Usado pelo laço de {@link #run()} e pelo modo sem threads
+     * ({@link software.Simulation}).
+     *
+     * @return instruções executadas, ou -1 se o núcleo está ocioso
+     */
+    public int dispatchQuantum() {
+        PCB current = so.scheduler.getRunning(id);
+        if (current == null) {
+            so.scheduler.scheduleNext(id); // núcleo ocioso: tenta despachar (ou roubar) trabalho
+            current = so.scheduler.getRunning(id);
         }
-
-        // VERIFICA INTERRUPÇÃO
-        if (irpt != Interrupts.noInterrupt) {
-            ih.handle(irpt);
-            irpt = Interrupts.noInterrupt;
+        if (current == null || current.state != PCB.ProcState.RUNNING) {
+            return -1;
         }
+        setPreemptive(!current.nonPreemptive);
+        currentPCB = current;
+        verified = current.verified;
+        return runQuantum();
     }
 
     public void run() {
         active = true;
         while (active) {
-            PCB current = (so != null && so.scheduler != null) ? so.scheduler.getRunning() : null;
-            if (current != null && current.state == PCB.ProcState.RUNNING) {
-                setPreemptive(true);
-                currentPCB = current;
-                step();
+            if (so != null && so.scheduler != null) {
+                if (dispatchQuantum() >= 0) continue;
+                // ocioso: espera o escalonador sinalizar trabalho em vez de dormir
+                if (!so.scheduler.awaitWork(50)) break;
             } else {
                 try { Thread.sleep(50); } catch (InterruptedException e) { Thread.currentThread().interrupt(); break; }
             }
@@ -307,9 +671,12 @@ public class CPU implements Runnable {
     }
 
     public void stopCPU() { active = false; cpuStop = true; }
+    public boolean isActive() { return active; }
 
     public int getMaxInt() { return maxInt; }
     public int getPc() { return pc; }
+    public int getFaultAddress() { return faultAddress; }
+    public boolean isFaultWrite() { return faultWrite; }
     public int[] getReg() { return reg; }
     public int getDelta() { return delta; }
     public int getInstructionCount() { return instructionCount; }
@@ -5,48 +5,72 @@ import java.util.concurrent.*;
 import software.PCB;
 
 /**
- * - Mantém slots (cada slot guarda uma página inteira = array de Word)
+ * - Mantém slots (cada slot guarda uma página inteira, empacotada como em {@link Memory})
  * - Permite page-in (read) e page-out (write) de forma assíncrona
  * - Notifica um DiskListener quando a operação termina
+ * - O momento em que a operação termina é decidido pelo {@link IoScheduler}:
+ *   por padrão uma thread que dorme a latência (tempo real); no modo sem
+ *   threads, um evento no relógio virtual ({@code software.Simulation})
  *
- * Observação: Word é a classe usada no projeto para conteúdo de memória.
+ * Observação: as páginas trafegam no formato primitivo de {@link Memory#pack}.
+ * Use {@link Memory#unpack} quando for preciso exibir o conteúdo como Word.
  */
 public class Disk {
 
     public interface DiskListener {
-        // pageInComplete: slot contém os dados lidos do "disco"
-        void pageInComplete(PCB process, int pageNumber, int frameIndex, int diskSlot);
+        // pageInComplete: data contém a página lida do "disco" (slot, ou imagem do programa se diskSlot == -1)
+        void pageInComplete(PCB process, int pageNumber, int frameIndex, int diskSlot, long[] data);
 
-        // pageOutComplete: finalizou escrita da página "victim" no disco
-        void pageOutComplete(int victimPid, int victimPageNumber, int diskSlot);
+        // pageOutComplete: finalizou escrita da página "victim", que estava no frame frameIndex
+        void pageOutComplete(int victimPid, int victimPageNumber, int frameIndex, int diskSlot);
     }
 
-    private final Word[][] slots;    // slots do disco (cada slot guarda uma página inteira)
+    /** Decide quando uma operação de IO termina. */
+    public interface IoScheduler {
+        // executa op depois de latencyMillis (tempo real ou virtual)
+        void submit(long latencyMillis, Runnable op);
+    }
+
+    private final long[][] slots;    // slots do disco (cada slot guarda uma página inteira)
     private final boolean[] used;
     private final int pageSize;
     private final ExecutorService executor;
+    private IoScheduler ioScheduler;
     private final DiskListener listener;
     private final long ioLatencyMillis; // tempo simulado de IO
 
     public Disk(int numSlots, int pageSize, DiskListener listener, long ioLatencyMillis) {
         this.pageSize = pageSize;
-        this.slots = new Word[numSlots][];
+        this.slots = new long[numSlots][];
         this.used = new boolean[numSlots];
         this.listener = listener;
         this.executor = Executors.newSingleThreadExecutor();
         this.ioLatencyMillis = ioLatencyMillis;
+        this.ioScheduler = (latency, op) -> executor.submit(() -> {
+            try {
+                Thread.sleep(latency); // simula latência do disco
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            op.run();
+        });
+    }
+
+    /** Troca o agendamento das operações (ex.: relógio virtual do modo sem threads). */
+    public void setIoScheduler(IoScheduler ioScheduler) {
+        this.ioScheduler = ioScheduler;
     }
 
+    public long getIoLatencyMillis() { return ioLatencyMillis; }
+
     /**
      * Cria uma página "vazia" (preenchida com palavras do tipo DATA).
      *
-     * @return um array de Word representando uma página sem conteúdo.
+     * @return página empacotada sem conteúdo.
      */
-    private Word[] emptyPage() {
-        Word[] page = new Word[pageSize];
-        for (int i = 0; i < pageSize; i++) {
-            page[i] = new Word(Opcode.DATA, -1, -1, -1);
-        }
+    private long[] emptyPage() {
+        long[] page = new long[pageSize];
+        Arrays.fill(page, Memory.pack(Opcode.DATA.ordinal(), -1, -1, -1));
         return page;
     }
 
@@ -87,7 +111,7 @@ public class Disk {
      * @param idx Índice do slot.
      * @return cópia da página armazenada, ou {@code null} se inválido.
      */
-    public synchronized Word[] readSlotSync(int idx) {
+    public synchronized long[] readSlotSync(int idx) {
         if (idx < 0 || idx >= slots.length || !used[idx]) return null;
         return slots[idx].clone();
     }
@@ -98,7 +122,7 @@ public class Disk {
      * @param idx  Índice do slot a ser gravado.
      * @param data Página a ser escrita.
      */
-    public synchronized void writeSlotSync(int idx, Word[] data) {
+    public synchronized void writeSlotSync(int idx, long[] data) {
         if (idx < 0 || idx >= slots.length) return;
         slots[idx] = data.clone();
         used[idx] = true;
@@ -115,23 +139,41 @@ public class Disk {
      * @param diskSlot   Slot de origem no disco (-1 indica primeira carga).
      */
     public void requestPageIn(final PCB process, final int pageNumber, final int frameIndex, final int diskSlot) {
-        executor.submit(() -> {
-            try {
-                Thread.sleep(ioLatencyMillis); // simula latência do disco
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            Word[] data;
+        ioScheduler.submit(ioLatencyMillis, () -> {
+            long[] data;
             if (diskSlot >= 0) {
                 synchronized (this) {
-                    data = slots[diskSlot] == null ? new Word[pageSize] : slots[diskSlot].clone();
+                    data = slots[diskSlot] == null ? emptyPage() : slots[diskSlot].clone();
                 }
             } else {
                 data = process.getProgramPage(pageNumber);
             }
             // Notifica o listener - passa diskSlot para referência
             if (listener != null) {
-                listener.pageInComplete(process, pageNumber, frameIndex, diskSlot);
+                listener.pageInComplete(process, pageNumber, frameIndex, diskSlot, data);
+            }
+        });
+    }
+
+    /**
+     * Lê várias páginas do processo em uma única operação (leitura antecipada):
+     * uma latência só, e o listener é notificado página a página.
+     *
+     * @param process     Processo dono das páginas.
+     * @param pageNumbers Páginas a ler.
+     * @param frames      Frame de destino de cada página.
+     * @param diskSlots   Slot de origem de cada página.
+     */
+    public void requestPageIns(final PCB process, final int[] pageNumbers, final int[] frames, final int[] diskSlots) {
+        ioScheduler.submit(ioLatencyMillis, () -> {
+            long[][] data = new long[pageNumbers.length][];
+            synchronized (this) {
+                for (int i = 0; i < pageNumbers.length; i++) {
+                    data[i] = slots[diskSlots[i]] == null ? emptyPage() : slots[diskSlots[i]].clone();
+                }
+            }
+            for (int i = 0; listener != null && i < pageNumbers.length; i++) {
+                listener.pageInComplete(process, pageNumbers[i], frames[i], diskSlots[i], data[i]);
             }
         });
     }
@@ -142,17 +184,12 @@ public class Disk {
      *
      * @param victimPid        PID do processo dono da página.
      * @param victimPageNumber Número da página a ser salva.
+     * @param frameIndex       Frame onde a página estava (devolvido no callback).
      * @param pageData         Dados da página.
      * @param diskSlot         Slot onde gravar (-1 para alocar novo).
      */
-    public void requestPageOut(final int victimPid, final int victimPageNumber, final Word[] pageData, final int diskSlot) {
-        executor.submit(() -> {
-            try {
-                Thread.sleep(ioLatencyMillis); // simula o tempo de escrita no disco
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-
+    public void requestPageOut(final int victimPid, final int victimPageNumber, final int frameIndex, final long[] pageData, final int diskSlot) {
+        ioScheduler.submit(ioLatencyMillis, () -> {
             int slot = diskSlot;
             synchronized (this) {
                 if (slot < 0) {
@@ -166,17 +203,12 @@ public class Disk {
                 } else {
                     System.out.println("[DISK] ERRO: sem espaço para gravar página " + victimPageNumber +
                             " do processo " + victimPid + ". Operação de Page-Out abortada.");
-
-                    if (listener != null) {
-                        listener.pageOutComplete(victimPid, victimPageNumber, -1);
-                    }
-                    return;
                 }
             }
 
-            // Ok para o callback (SO) que a gravação foi concluída com sucesso
+            // Avisa o SO fora do lock do disco (slot -1 = disco cheio)
             if (listener != null) {
-                listener.pageOutComplete(victimPid, victimPageNumber, slot);
+                listener.pageOutComplete(victimPid, victimPageNumber, frameIndex, slot);
             }
         });
     }
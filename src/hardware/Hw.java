@@ -1,8 +1,13 @@
 package hardware;
 
+import util.Tracer;
+
 public class Hw {
     public Memory mem;
-    public CPU cpu;
+    public CPU cpu;     // núcleo 0 (mantido para o modo exec e compatibilidade)
+    public CPU[] cpus;  // todos os núcleos, compartilhando a mesma memória
+    public Tracer tracer; // trace binário compartilhado pelos núcleos e pelo SO
+    public Profiler profiler; // contadores de execução (um vetor por núcleo)
     
     private int tamMem;
     private int tamPg;
@@ -13,16 +18,30 @@ public class Hw {
     }
     
     public Hw(int tamMem, int tamPg, int delta) {
+        this(tamMem, tamPg, delta, 1);
+    }
+
+    public Hw(int tamMem, int tamPg, int delta, int nroCpus) {
         this.tamMem = tamMem;
         this.tamPg = tamPg;
         this.delta = delta;
         
         mem = new Memory(tamMem, tamPg);
-        cpu = new CPU(mem, true); // true liga debug
-        cpu.setDelta(delta);
+        tracer = new Tracer();
+        cpus = new CPU[Math.max(1, nroCpus)];
+        profiler = new Profiler(cpus.length);
+        BlockCompiler blocks = new BlockCompiler(mem); // blocos compilados são compartilhados entre os núcleos
+        for (int i = 0; i < cpus.length; i++) {
+            cpus[i] = new CPU(mem, false, i, blocks);
+            cpus[i].setTracer(tracer);
+            cpus[i].setProfiler(profiler);
+            cpus[i].setDelta(delta);
+        }
+        cpu = cpus[0];
     }
     
     public int getTamMem() { return tamMem; }
     public int getTamPg() { return tamPg; }
     public int getDelta() { return delta; }
+    public int getNroCpus() { return cpus.length; }
 }
@@ -0,0 +1,215 @@
+package hardware;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache de instruções pré-decodificadas, organizado por frame físico.
+ *
+ * Cada posição da memória física tem uma forma decodificada compacta
+ * (ordinal do opcode, ra, rb, p) guardada em vetores primitivos. Um frame
+ * é decodificado (e validado) uma única vez, na primeira busca de instrução
+ * que cair nele, e é invalidado sempre que alguma posição do frame é escrita
+ * em {@link Memory#write(int, Word)} (o que inclui cargas de programa e page-in).
+ *
+ * Assim, laços apertados como os de {@code fatorial} ou {@code PC} não refazem
+ * a decodificação nem a validação do opcode a cada passagem.
+ *
+ * Na decodificação do frame também é feita uma passagem peephole que marca
+ * sequências comuns nos programas (ver {@link #fused}) como superinstruções,
+ * executadas pela CPU em um único despacho. A memória não é alterada: dumps
+ * e o trace continuam vendo as instruções originais.
+ *
+ * Uma instância é compartilhada por todos os núcleos: cada frame tem uma
+ * versão (incrementada depois de cada escrita) e a versão de que veio a
+ * decodificação atual, ambas atômicas. A decodificação só vale enquanto as
+ * duas são iguais; escrita de outro núcleo durante a decodificação deixa a
+ * versão adiante e o frame é decodificado de novo no próximo uso.
+ */
+public class InstructionCache {
+
+    /** Ordinal usado para posições que não contêm uma instrução executável. */
+    public static final int INVALID = -1;
+
+    // Superinstruções (grupo que começa na posição; nunca atravessa o fim do frame)
+    public static final int NOT_FUSED = 0;
+    static final int FUSED_LDI_LDI = 1;          // LDI; LDI
+    static final int FUSED_LDI_LDI_SYSCALL = 2;  // LDI r8; LDI r9; SYSCALL (saída/entrada)
+    static final int FUSED_LDI_BRANCH = 3;       // LDI; desvio condicional por registrador
+    static final int FUSED_ALU_JMP = 4;          // ADD/SUB/MULT/...; JMP (fim de laço)
+    static final int FUSED_ALU_BRANCH = 5;       // ADD/SUB/MULT/...; desvio condicional
+    private static final int[] FUSED_LENGTH = {1, 2, 3, 2, 2, 2};
+
+    private static final Opcode[] OPCODES = Opcode.values();
+
+    // EXECUTABLE[ordinal] indica se o opcode é uma instrução executável
+    private static final boolean[] EXECUTABLE = new boolean[256];
+    static {
+        for (Opcode o : Opcode.values()) {
+            EXECUTABLE[o.ordinal()] = isValidInstruction(o);
+        }
+    }
+
+    private final Memory mem;
+    private final int tamPg;
+
+    // forma decodificada de cada posição da memória física
+    final int[] opc;
+    final int[] ra;
+    final int[] rb;
+    final int[] p;
+    final int[] fused; // fused[i] = superinstrução que começa em i (NOT_FUSED se nenhuma)
+
+    private final AtomicIntegerArray version; // incrementada a cada escrita no frame (blocos compilados usam)
+    private final AtomicIntegerArray decoded; // versão do frame de que veio a forma decodificada (-1: nenhuma)
+
+    // estatísticas (incrementadas por todos os núcleos)
+    private final LongAdder decodes = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder fusedSites = new LongAdder();
+
+    public InstructionCache(Memory mem) {
+        this.mem = mem;
+        this.tamPg = mem.getTamPg();
+        int tamMem = mem.getTamMem();
+        this.opc = new int[tamMem];
+        this.ra = new int[tamMem];
+        this.rb = new int[tamMem];
+        this.p = new int[tamMem];
+        this.fused = new int[tamMem];
+        int frames = (tamMem + tamPg - 1) / tamPg;
+        this.version = new AtomicIntegerArray(frames);
+        this.decoded = new AtomicIntegerArray(frames);
+        for (int f = 0; f < frames; f++) decoded.set(f, -1);
+    }
+
+    /**
+     * Garante que o frame que contém o endereço físico esteja decodificado.
+     *
+     * @param enderecoFisico endereço físico da instrução a ser buscada
+     * @return versão do frame a que corresponde a forma decodificada
+     */
+    public int ensureDecoded(int enderecoFisico) {
+        int frame = enderecoFisico / tamPg;
+        int ver = version.get(frame);
+        while (decoded.get(frame) != ver) {
+            decodeFrame(frame, ver);
+            ver = version.get(frame); // escrito durante a decodificação: decodifica de novo
+        }
+        return ver;
+    }
+
+    /** Versão atual do frame (muda a cada escrita). */
+    int version(int frame) {
+        return version.get(frame);
+    }
+
+    /**
+     * Decodifica todas as posições de um frame para a forma primitiva.
+     * Posições que não são instruções válidas recebem o ordinal {@link #INVALID}.
+     *
+     * @param frame índice do frame físico
+     * @param ver   versão do frame lida antes de começar
+     */
+    private void decodeFrame(int frame, int ver) {
+        int start = frame * tamPg;
+        int end = Math.min(start + tamPg, mem.getTamMem());
+        for (int i = start; i < end; i++) {
+            long cell = mem.readPacked(i);
+            int ordinal = Memory.opcOf(cell);
+            opc[i] = EXECUTABLE[ordinal] ? ordinal : INVALID;
+            ra[i] = Memory.raOf(cell);
+            rb[i] = Memory.rbOf(cell);
+            p[i] = Memory.pOf(cell);
+        }
+        for (int i = start; i < end; i++) {
+            fused[i] = fuse(i, end);
+            if (fused[i] != NOT_FUSED) fusedSites.increment();
+        }
+        // publica a versão lida antes: se outro núcleo escreveu no frame, ela já ficou para trás
+        decoded.set(frame, ver);
+        decodes.increment();
+    }
+
+    /**
+     * Invalida a forma decodificada do frame que contém o endereço físico
+     * (chamado depois da escrita).
+     *
+     * @param enderecoFisico endereço físico que foi escrito
+     */
+    public void invalidate(int enderecoFisico) {
+        int frame = enderecoFisico / tamPg;
+        if (decoded.get(frame) == version.getAndIncrement(frame)) {
+            invalidations.increment();
+        }
+    }
+
+    // Peephole: reconhece a sequência que começa em i (sem passar de end)
+    private int fuse(int i, int end) {
+        if (i + 1 >= end || opc[i] == INVALID || opc[i + 1] == INVALID) {
+            return NOT_FUSED;
+        }
+        Opcode first = OPCODES[opc[i]];
+        Opcode second = OPCODES[opc[i + 1]];
+        if (first == Opcode.LDI && second == Opcode.LDI) {
+            if (i + 2 < end && opc[i + 2] == Opcode.SYSCALL.ordinal()) {
+                return FUSED_LDI_LDI_SYSCALL;
+            }
+            return FUSED_LDI_LDI;
+        }
+        if (first == Opcode.LDI && isRegisterBranch(second)) {
+            return FUSED_LDI_BRANCH;
+        }
+        if (isAlu(first)) {
+            if (second == Opcode.JMP) return FUSED_ALU_JMP;
+            if (isRegisterBranch(second)) return FUSED_ALU_BRANCH;
+        }
+        return NOT_FUSED;
+    }
+
+    private static boolean isAlu(Opcode o) {
+        switch (o) {
+            case ADD: case ADDI: case SUB: case SUBI: case MULT: case MOVE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // desvios condicionais que não leem a memória
+    private static boolean isRegisterBranch(Opcode o) {
+        switch (o) {
+            case JMPIG: case JMPIL: case JMPIE:
+            case JMPIGK: case JMPILK: case JMPIEK: case JMPIGT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** Número de instruções originais de uma superinstrução. */
+    static int fusedLength(int kind) {
+        return FUSED_LENGTH[kind];
+    }
+
+    public int getTamPg() { return tamPg; }
+
+    public static boolean isValidInstruction(Opcode opc) {
+        if (opc == null) return false;
+        switch (opc) {
+            case JMP: case JMPI: case JMPIG: case JMPIL: case JMPIE:
+            case JMPIM: case JMPIGM: case JMPILM: case JMPIEM:
+            case JMPIGK: case JMPILK: case JMPIEK: case JMPIGT:
+            case ADDI: case SUBI: case ADD: case SUB: case MULT:
+            case LDI: case LDD: case STD: case LDX: case STX: case MOVE:
+            case SYSCALL: case STOP:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public long getDecodes() { return decodes.sum(); }
+    public long getInvalidations() { return invalidations.sum(); }
+    public long getFusedSites() { return fusedSites.sum(); }
+}
@@ -1,19 +1,37 @@
 package hardware;
 
+import java.util.Arrays;
+
+/**
+ * Memória física.
+ *
+ * Cada posição é guardada empacotada em um {@code long} (ver {@link #pack}),
+ * evitando um objeto {@link Word} por posição. As operações do caminho de
+ * execução ({@link #readData}, {@link #writeData}, {@link #readFrame}) trabalham
+ * somente com primitivos; {@link #read(int)} e {@link #write(int, Word)} são
+ * adaptadores para dumps, shell e carga de programas.
+ */
 public class Memory {
-    public Word[] pos; // pos[i] é a posição i da memória. cada posição é uma palavra.
+    // Layout de uma posição empacotada:
+    //   bits 63..56 ordinal do opcode | 55..48 ra | 47..40 rb | 31..0 p
+    // ra e rb são guardados como byte com sinal (-128..127), suficiente para os 10 registradores e -1.
+    private static final Opcode[] OPCODES = Opcode.values();
+    private static final long EMPTY = pack(Opcode.___.ordinal(), -1, -1, -1);
+    private static final long DATA_HEADER = pack(Opcode.DATA.ordinal(), -1, -1, 0);
+
+    private long[] pos; // pos[i] é a posição i da memória, empacotada
     private int tamMem;
     private int tamPg;
     private int nroFrames;
+    private InstructionCache icache; // forma decodificada das instruções, por frame
 
     public Memory(int tamMem, int tamPg) {
         this.tamMem = tamMem;
         this.tamPg = tamPg;
         this.nroFrames = tamMem / tamPg;
-        pos = new Word[tamMem];
-        for (int i = 0; i < pos.length; i++) {
-            pos[i] = new Word(Opcode.___, -1, -1, -1);
-        }
+        pos = new long[tamMem];
+        Arrays.fill(pos, EMPTY);
+        icache = new InstructionCache(this);
     }
 
     public Memory(int size) {
@@ -23,38 +41,104 @@ public class Memory {
     public int getTamMem() { return tamMem; }
     public int getTamPg() { return tamPg; }
     public int getNroFrames() { return nroFrames; }
+    public InstructionCache getInstructionCache() { return icache; }
 
-    public Word read(int enderecoFisico) {
+    // ============== EMPACOTAMENTO ==============
+
+    public static long pack(int opc, int ra, int rb, int p) {
+        return ((long) (opc & 0xFF) << 56)
+                | ((long) (ra & 0xFF) << 48)
+                | ((long) (rb & 0xFF) << 40)
+                | (p & 0xFFFFFFFFL);
+    }
+
+    public static long pack(Word w) {
+        int opc = (w.opc == null) ? Opcode.___.ordinal() : w.opc.ordinal();
+        return pack(opc, w.ra, w.rb, w.p);
+    }
+
+    /** Palavra de dado ({@code DATA, -1, -1, valor}) já empacotada. */
+    public static long packData(int valor) {
+        return DATA_HEADER | (valor & 0xFFFFFFFFL);
+    }
+
+    public static int opcOf(long cell) { return (int) (cell >>> 56); }
+    public static int raOf(long cell) { return (byte) (cell >>> 48); }
+    public static int rbOf(long cell) { return (byte) (cell >>> 40); }
+    public static int pOf(long cell) { return (int) cell; }
+
+    public static Word unpack(long cell) {
+        return new Word(OPCODES[opcOf(cell)], raOf(cell), rbOf(cell), pOf(cell));
+    }
+
+    // ============== ACESSO ==============
+
+    private void checkAddress(int enderecoFisico) {
         if (enderecoFisico < 0 || enderecoFisico >= tamMem) {
             throw new RuntimeException("Acesso inválido à memória: " + enderecoFisico);
         }
+    }
+
+    /**
+     * Adaptador: constrói um {@link Word} com o conteúdo da posição.
+     * Uso em dumps e shell; o caminho de execução usa {@link #readData} / {@link #readPacked}.
+     */
+    public Word read(int enderecoFisico) {
+        checkAddress(enderecoFisico);
+        return unpack(pos[enderecoFisico]);
+    }
+
+    public long readPacked(int enderecoFisico) {
+        checkAddress(enderecoFisico);
         return pos[enderecoFisico];
     }
 
+    /** Retorna somente o campo {@code p} da posição (o dado, para palavras DATA). */
+    public int readData(int enderecoFisico) {
+        checkAddress(enderecoFisico);
+        return (int) pos[enderecoFisico];
+    }
+
     public void write(int enderecoFisico, Word w) {
-        if (enderecoFisico < 0 || enderecoFisico >= tamMem) {
-            throw new RuntimeException("Acesso inválido à memória: " + enderecoFisico);
-        }
-        pos[enderecoFisico] = w;
+        writePacked(enderecoFisico, pack(w));
+    }
+
+    public void writePacked(int enderecoFisico, long cell) {
+        checkAddress(enderecoFisico);
+        pos[enderecoFisico] = cell;
+        icache.invalidate(enderecoFisico);
+    }
+
+    /** Escreve {@code DATA, -1, -1, valor} na posição (STD / STX). */
+    public void writeData(int enderecoFisico, int valor) {
+        writePacked(enderecoFisico, packData(valor));
     }
 
     /**
      * Lê o conteúdo completo de um frame (página) da memória física.
      *
      * @param frameIndex índice do frame que será lido
-     * @return um vetor de Word contendo todas as palavras do frame
+     * @return cópia das posições do frame, empacotadas
      */
-    public Word[] readFrame(int frameIndex) {
-        int tamPg = getTamPg();
+    public long[] readFrame(int frameIndex) {
         int start = frameIndex * tamPg;
-        Word[] page = new Word[tamPg];
-
-        for (int i = 0; i < tamPg; i++) {
-            page[i] = read(start + i);
-        }
-
+        checkAddress(start + tamPg - 1);
+        long[] page = new long[tamPg];
+        System.arraycopy(pos, start, page, 0, tamPg);
         return page;
     }
 
-}
+    /**
+     * Escreve uma página inteira (empacotada) em um frame da memória física.
+     *
+     * @param frameIndex índice do frame de destino
+     * @param page       conteúdo da página, com tamPg posições
+     */
+    public void writeFrame(int frameIndex, long[] page) {
+        int start = frameIndex * tamPg;
+        checkAddress(start + tamPg - 1);
+        System.arraycopy(page, 0, pos, start, tamPg);
+        icache.invalidate(start);
+    }
 
+}
@@ -0,0 +1,205 @@
+package hardware;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Profiler de execução, bem mais barato que o trace: só incrementa contadores.
+ *
+ * Conta as instruções completadas por opcode (um vetor por núcleo, somados
+ * no relatório), por (pid, pc lógico) e, nos desvios, quantas vezes o desvio
+ * foi tomado. Enquanto está ligado a CPU executa pelo interpretador simples
+ * (sem blocos compilados nem superinstruções), então as contagens são sempre
+ * das instruções originais do programa.
+ *
+ * Os contadores por pc de um processo ficam em um {@link PcProfile}, que
+ * continua disponível depois que o processo termina (até {@link #reset()}).
+ */
+public class Profiler {
+    private static final Opcode[] OPCODES = Opcode.values();
+
+    /** Contadores por pc lógico de um processo. */
+    public static final class PcProfile {
+        public final int pid;
+        public final String nome;
+        final long[] executed; // executed[pc] = instruções completadas em pc
+        final long[] taken;    // taken[pc] = desvios tomados em pc
+        final int[] opcode;    // opcode[pc] = ordinal da última instrução executada em pc
+
+        PcProfile(int pid, String nome, int size) {
+            this.pid = pid;
+            this.nome = nome;
+            this.executed = new long[size];
+            this.taken = new long[size];
+            this.opcode = new int[size];
+            Arrays.fill(opcode, -1);
+        }
+
+        public long getExecuted(int pc) { return executed[pc]; }
+        public long getTaken(int pc) { return taken[pc]; }
+        public int size() { return executed.length; }
+
+        public long total() {
+            long t = 0;
+            for (long n : executed) t += n;
+            return t;
+        }
+    }
+
+    private final long[][] executed; // [núcleo][opcode]
+    private final long[][] taken;    // [núcleo][opcode] desvios tomados
+    private final List<PcProfile> profiles = new CopyOnWriteArrayList<>();
+    private volatile boolean enabled;
+
+    public Profiler(int nroCpus) {
+        this.executed = new long[nroCpus][OPCODES.length];
+        this.taken = new long[nroCpus][OPCODES.length];
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    /** Cria os contadores por pc de um processo com {@code size} posições lógicas. */
+    public PcProfile newProfile(int pid, String nome, int size) {
+        PcProfile p = new PcProfile(pid, nome, size);
+        profiles.add(p);
+        return p;
+    }
+
+    /**
+     * Conta uma instrução completada.
+     *
+     * @param cpu   núcleo que executou
+     * @param prof  contadores do processo (pode ser null)
+     * @param pc    pc lógico da instrução
+     * @param op    ordinal do opcode
+     * @param taken true se a instrução é um desvio e foi tomado
+     */
+    void count(int cpu, PcProfile prof, int pc, int op, boolean taken) {
+        executed[cpu][op]++;
+        if (taken) this.taken[cpu][op]++;
+        if (prof != null && pc >= 0 && pc < prof.executed.length) {
+            prof.executed[pc]++;
+            if (taken) prof.taken[pc]++;
+            prof.opcode[pc] = op;
+        }
+    }
+
+    static boolean isBranch(Opcode o) {
+        switch (o) {
+            case JMP: case JMPI: case JMPIG: case JMPIL: case JMPIE:
+            case JMPIM: case JMPIGM: case JMPILM: case JMPIEM:
+            case JMPIGK: case JMPILK: case JMPIEK: case JMPIGT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public void reset() {
+        for (long[] a : executed) Arrays.fill(a, 0);
+        for (long[] a : taken) Arrays.fill(a, 0);
+        profiles.clear();
+    }
+
+    public long getExecuted(Opcode o) {
+        long t = 0;
+        for (long[] a : executed) t += a[o.ordinal()];
+        return t;
+    }
+
+    public long getTaken(Opcode o) {
+        long t = 0;
+        for (long[] a : taken) t += a[o.ordinal()];
+        return t;
+    }
+
+    /** Contadores de um processo (o mais recente com esse pid), ou null. */
+    public PcProfile getProfile(int pid) {
+        PcProfile found = null;
+        for (PcProfile p : profiles) {
+            if (p.pid == pid) found = p;
+        }
+        return found;
+    }
+
+    /** Mistura de instruções: execuções por opcode e, nos desvios, tomados/não tomados. */
+    public String instructionMix() {
+        long total = 0;
+        for (Opcode o : OPCODES) total += getExecuted(o);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Profiler %s | %d instruções\n", enabled ? "ligado" : "desligado", total));
+        sb.append(String.format("%-8s %12s %7s %12s %12s\n", "OPCODE", "EXECUÇÕES", "%", "TOMADOS", "NÃO TOMADOS"));
+        for (Opcode o : OPCODES) {
+            long n = getExecuted(o);
+            if (n == 0) continue;
+            double pct = 100.0 * n / total;
+            if (isBranch(o)) {
+                long t = getTaken(o);
+                sb.append(String.format("%-8s %12d %6.2f%% %12d %12d\n", o, n, pct, t, n - t));
+            } else {
+                sb.append(String.format("%-8s %12d %6.2f%%\n", o, n, pct));
+            }
+        }
+        return sb.toString();
+    }
+
+    /** PCs mais executados de um processo, em ordem decrescente. */
+    public String hotPcs(int pid, int limit) {
+        PcProfile p = getProfile(pid);
+        if (p == null) {
+            return "Sem dados de profile para o processo " + pid;
+        }
+        List<Integer> pcs = new ArrayList<>();
+        for (int pc = 0; pc < p.executed.length; pc++) {
+            if (p.executed[pc] > 0) pcs.add(pc);
+        }
+        pcs.sort((a, b) -> Long.compare(p.executed[b], p.executed[a]));
+
+        long total = p.total();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("=== PROFILE pid=%d (%s) | %d instruções ===\n", p.pid, p.nome, total));
+        sb.append(String.format("%-5s %-8s %12s %7s %12s %12s\n", "PC", "OPCODE", "EXECUÇÕES", "%", "TOMADOS", "NÃO TOMADOS"));
+        for (int i = 0; i < pcs.size() && i < limit; i++) {
+            int pc = pcs.get(i);
+            Opcode o = OPCODES[p.opcode[pc]];
+            long n = p.executed[pc];
+            double pct = 100.0 * n / total;
+            if (isBranch(o)) {
+                sb.append(String.format("%-5d %-8s %12d %6.2f%% %12d %12d\n", pc, o, n, pct, p.taken[pc], n - p.taken[pc]));
+            } else {
+                sb.append(String.format("%-5d %-8s %12d %6.2f%%\n", pc, o, n, pct));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Grava os contadores em CSV: uma linha por opcode (pid vazio) e uma por
+     * (pid, pc) executado.
+     */
+    public void writeCsv(String path) throws IOException {
+        try (PrintWriter w = new PrintWriter(path, "UTF-8")) {
+            w.println("tipo,pid,nome,pc,opcode,execucoes,tomados,nao_tomados");
+            for (Opcode o : OPCODES) {
+                long n = getExecuted(o);
+                if (n == 0) continue;
+                long t = isBranch(o) ? getTaken(o) : 0;
+                w.printf("opcode,,,,%s,%d,%d,%d%n", o, n, t, isBranch(o) ? n - t : 0);
+            }
+            for (PcProfile p : profiles) {
+                for (int pc = 0; pc < p.executed.length; pc++) {
+                    long n = p.executed[pc];
+                    if (n == 0) continue;
+                    Opcode o = OPCODES[p.opcode[pc]];
+                    long t = p.taken[pc];
+                    w.printf("pc,%d,%s,%d,%s,%d,%d,%d%n", p.pid, p.nome, pc, o, n, t, isBranch(o) ? n - t : 0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package hardware;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tradutor de regiões quentes para bytecode da JVM (terceiro nível, acima
+ * das closures do {@link BlockCompiler}).
+ *
+ * Uma região são alguns frames físicos de código muito executado (o bloco
+ * quente e os sucessores encadeados a ele). Ela vira o código-fonte Java de
+ * uma classe com um único método {@code run}: os registradores da CPU viram
+ * variáveis locais, o pc fica em uma local e cada posição dos frames vira um
+ * {@code case} de um {@code switch} pelo endereço físico, com as instruções
+ * seguidas do mesmo frame caindo uma na outra. O fonte é compilado em memória
+ * pelo javac da própria JVM ({@link ToolProvider}) e carregado como classe
+ * oculta ({@link MethodHandles.Lookup#defineHiddenClass}) no pacote
+ * {@code hardware}, então o JIT da JVM otimiza o laço do programa hóspede
+ * como código Java comum.
+ *
+ * A semântica é a mesma de {@link CPU#step()}: a instrução que gera
+ * interrupção (overflow fora de ±32767, endereço inválido, page fault) não
+ * completa, e a região para em exatamente {@code budget} instruções, então o
+ * TIMER da fatia ({@code delta}) cai na mesma instrução. Desvio para posição
+ * fixa na mesma página lógica segue direto no {@code case} do destino; nos
+ * outros desvios e no fim de cada frame o pc é traduzido de novo (bit R e page
+ * fault como na busca do interpretador). Em ambos a versão do frame de destino
+ * é conferida: frame escrito,
+ * ou página que saiu da memória, devolve a execução ao {@link CPU} (blocos ou
+ * interpretador). Depois de uma escrita a versão do próprio frame também é
+ * conferida.
+ *
+ * A tradução roda em uma thread própria; enquanto ela não termina, a CPU
+ * segue pelas closures. Sem compilador na JVM (só JRE) a tradução é desligada.
+ */
+public class RegionTranslator {
+
+    // Frames de uma região já decodificados, copiados do InstructionCache
+    static final class Source {
+        final int[] frames;
+        final int[] versions;
+        final int[] opc;
+        final int[] ra;
+        final int[] rb;
+        final int[] p;
+
+        Source(int[] frames, int[] versions, int tamPg) {
+            this.frames = frames;
+            this.versions = versions;
+            int n = frames.length * tamPg;
+            this.opc = new int[n];
+            this.ra = new int[n];
+            this.rb = new int[n];
+            this.p = new int[n];
+        }
+    }
+
+    private static final Opcode[] OPCODES = Opcode.values();
+    private static final String CLASS_NAME = "RegiaoTraduzida";
+
+    private final InstructionCache icache;
+    private final int tamPg;
+    private final int nRegs;
+    private final JavaCompiler javac;
+    private final String classPath;
+
+    // escritas só pela thread de tradução
+    private volatile long translated;
+    private volatile long failures;
+
+    RegionTranslator(InstructionCache icache, int tamPg, int nRegs) {
+        this.icache = icache;
+        this.tamPg = tamPg;
+        this.nRegs = nRegs;
+        this.javac = ToolProvider.getSystemJavaCompiler();
+        this.classPath = classPath();
+    }
+
+    /** false se a JVM não tem compilador (só JRE): as regiões ficam nas closures. */
+    boolean isAvailable() {
+        return javac != null && classPath != null;
+    }
+
+    long getTranslated() { return translated; }
+    long getFailures() { return failures; }
+
+    // As classes geradas usam CPU, BasicBlock e o tratador de SYSCALL: compila
+    // contra o mesmo lugar de onde elas foram carregadas
+    private static String classPath() {
+        try {
+            String own = new File(CPU.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+            String cp = System.getProperty("java.class.path");
+            return cp == null || cp.isEmpty() ? own : own + File.pathSeparator + cp;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Traduz a região e carrega a classe.
+     *
+     * @return código da região, ou null se a compilação falhou
+     */
+    BasicBlock.Code translate(Source src) {
+        try {
+            byte[] bytes = compile(generate(src));
+            if (bytes == null) {
+                failures++;
+                return null;
+            }
+            MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            BasicBlock.Code code = (BasicBlock.Code) hidden
+                    .findConstructor(hidden.lookupClass(), MethodType.methodType(void.class, InstructionCache.class))
+                    .invoke(icache);
+            translated++;
+            return code;
+        } catch (Throwable e) {
+            failures++;
+            return null;
+        }
+    }
+
+    /** Fonte Java da região (uma classe, um método {@code run}). */
+    String generate(Source src) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package hardware;\n\n");
+        sb.append("public final class ").append(CLASS_NAME).append(" implements BasicBlock.Code {\n");
+        sb.append("    private static final Interrupts NONE = Interrupts.noInterrupt;\n");
+        sb.append("    private final InstructionCache icache;\n\n");
+        sb.append("    public ").append(CLASS_NAME).append("(InstructionCache icache) {\n");
+        sb.append("        this.icache = icache;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public int run(CPU c, int budget) {\n");
+        sb.append("        int[] reg = c.reg;\n");
+        for (int r = 0; r < nRegs; r++) sb.append("        int r").append(r).append(" = reg[").append(r).append("];\n");
+        sb.append("        int pc = c.pc;\n");
+        sb.append("        int n = 0;\n");
+        sb.append("        run:\n");
+        sb.append("        while (true) {\n");
+        sb.append("            int phys = c.fetchAddress(pc);\n");
+        sb.append("            if (phys < 0) break;\n");
+        sb.append("            switch (phys / ").append(tamPg).append(") {\n");
+        for (int i = 0; i < src.frames.length; i++) {
+            sb.append("                case ").append(src.frames[i]).append(": if (icache.version(").append(src.frames[i])
+                    .append(") != ").append(src.versions[i]).append(") break run; break;\n");
+        }
+        sb.append("                default: break run;\n");
+        sb.append("            }\n");
+        sb.append("            dispatch:\n");
+        sb.append("            while (true) {\n");
+        sb.append("            switch (phys) {\n");
+        for (int i = 0; i < src.frames.length; i++) {
+            int frame = src.frames[i];
+            for (int k = 0; k < tamPg; k++) {
+                int at = i * tamPg + k;
+                sb.append("                case ").append(frame * tamPg + k).append(":\n");
+                sb.append("                    if (n == budget) break run;\n");
+                instruction(sb, src.opc[at], src.ra[at], src.rb[at], src.p[at], frame, src.versions[i]);
+            }
+            int last = src.opc[i * tamPg + tamPg - 1];
+            if (fallsThrough(last)) sb.append("                    continue run; // fim do frame: traduz o pc de novo\n");
+        }
+        sb.append("            }\n");
+        sb.append("            break run;\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        spill(sb, "        ");
+        sb.append("        c.pc = pc;\n");
+        sb.append("        return n;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    // Uma instrução, com a mesma semântica de CPU.executeDecoded (interrupção: não completa)
+    private void instruction(StringBuilder sb, int o, int a, int b, int p, int frame, int version) {
+        String in = "                    ";
+        if (o == InstructionCache.INVALID) {
+            sb.append(in).append("c.irpt = Interrupts.intInstrucaoInvalida; break run;\n");
+            return;
+        }
+        String ra = "r" + a;
+        String rb = "r" + b;
+        switch (OPCODES[o]) {
+            case LDI:
+                sb.append(in).append(ra).append(" = ").append(p).append("; pc++; n++;\n");
+                break;
+            case LDD:
+                sb.append(in).append("{ int d = c.readMemory(").append(p).append("); if (c.irpt != NONE) break run; ")
+                        .append(ra).append(" = d; } pc++; n++;\n");
+                break;
+            case LDX:
+                sb.append(in).append("{ int d = c.readMemory(").append(rb).append("); if (c.irpt != NONE) break run; ")
+                        .append(ra).append(" = d; } pc++; n++;\n");
+                break;
+            case STD:
+                store(sb, in, String.valueOf(p), ra, frame, version);
+                break;
+            case STX:
+                store(sb, in, ra, rb, frame, version);
+                break;
+            case MOVE:
+                sb.append(in).append(ra).append(" = ").append(rb).append("; pc++; n++;\n");
+                break;
+            case ADD:
+                arith(sb, in, ra, ra + " + " + rb);
+                break;
+            case ADDI:
+                arith(sb, in, ra, ra + " + " + p);
+                break;
+            case SUB:
+                arith(sb, in, ra, ra + " - " + rb);
+                break;
+            case SUBI:
+                arith(sb, in, ra, ra + " - " + p);
+                break;
+            case MULT:
+                arith(sb, in, ra, ra + " * " + rb);
+                break;
+            case JMP:
+                sb.append(in).append("{\n");
+                jump(sb, in + "    ", p, frame, version);
+                sb.append(in).append("}\n");
+                break;
+            case JMPIM:
+                sb.append(in).append("{ int d = c.readMemory(").append(p)
+                        .append("); if (c.irpt != NONE || !c.isValidJump(d)) break run; pc = d; } n++; continue run;\n");
+                break;
+            case JMPIG:
+                branch(sb, in, rb + " > 0", ra);
+                break;
+            case JMPIL:
+                branch(sb, in, rb + " < 0", ra);
+                break;
+            case JMPIE:
+                branch(sb, in, rb + " == 0", ra);
+                break;
+            case JMPIGK:
+                branch(sb, in, rb + " > 0", p, frame, version);
+                break;
+            case JMPILK:
+                branch(sb, in, rb + " < 0", p, frame, version);
+                break;
+            case JMPIEK:
+                branch(sb, in, rb + " == 0", p, frame, version);
+                break;
+            case JMPIGT:
+                branch(sb, in, ra + " > " + rb, p, frame, version);
+                break;
+            case JMPIGM:
+                branchIndirect(sb, in, rb + " > 0", p);
+                break;
+            case JMPILM:
+                branchIndirect(sb, in, rb + " < 0", p);
+                break;
+            case JMPIEM:
+                branchIndirect(sb, in, rb + " == 0", p);
+                break;
+            case SYSCALL:
+                // o tratador lê e escreve os registradores (r8, r9) na CPU
+                spill(sb, in);
+                sb.append(in).append("c.pc = pc;\n");
+                sb.append(in).append("c.sysCall.handle(c);\n");
+                for (int r = 0; r < nRegs; r++) sb.append(in).append("r").append(r).append(" = reg[").append(r).append("];\n");
+                sb.append(in).append("pc++; c.syscallDone = true;\n");
+                sb.append(in).append("if (c.irpt == NONE) n++;\n");
+                sb.append(in).append("break run;\n");
+                break;
+            case STOP:
+                sb.append(in).append("c.irpt = Interrupts.intSysCallStop; break run;\n");
+                break;
+            default:
+                sb.append(in).append("c.irpt = Interrupts.intInstrucaoInvalida; break run;\n");
+                break;
+        }
+    }
+
+    // A instrução pode seguir para a próxima posição (senão termina em break/continue)
+    private static boolean fallsThrough(int o) {
+        if (o == InstructionCache.INVALID) return false;
+        switch (OPCODES[o]) {
+            case JMP: case JMPIM: case SYSCALL: case STOP:
+                return false;
+            default:
+                return InstructionCache.isValidInstruction(OPCODES[o]);
+        }
+    }
+
+    private static void arith(StringBuilder sb, String in, String ra, String expr) {
+        // o registrador recebe o valor mesmo com overflow, como no interpretador
+        sb.append(in).append(ra).append(" = ").append(expr).append("; if (!c.verifyOverflow(").append(ra)
+                .append(")) break run; pc++; n++;\n");
+    }
+
+    // escrita pode atingir código da região: o próprio frame é conferido logo
+    // depois, os outros na próxima tradução do pc
+    private static void store(StringBuilder sb, String in, String addr, String value, int frame, int version) {
+        sb.append(in).append("c.writeMemory(").append(addr).append(", ").append(value)
+                .append("); if (c.irpt != NONE) break run; pc++; n++;\n");
+        sb.append(in).append("if (icache.version(").append(frame).append(") != ").append(version).append(") break run;\n");
+    }
+
+    private static void branch(StringBuilder sb, String in, String cond, String dest) {
+        sb.append(in).append("if (").append(cond).append(") { if (!c.isValidJump(").append(dest)
+                .append(")) break run; pc = ").append(dest).append("; n++; continue run; }\n");
+        sb.append(in).append("pc++; n++;\n");
+    }
+
+    // desvio para posição fixa: se ela está na mesma página lógica do pc, o
+    // destino é uma posição deste frame (já traduzido e conferido) e a execução
+    // segue direto no case dele; senão traduz o pc de novo
+    private void jump(StringBuilder sb, String in, int dest, int frame, int version) {
+        sb.append(in).append("if (pc / ").append(tamPg).append(" == ").append(Math.floorDiv(dest, tamPg))
+                .append(" && icache.version(").append(frame).append(") == ").append(version).append(") {\n");
+        sb.append(in).append("    pc = ").append(dest).append("; phys = ").append(frame * tamPg + Math.floorMod(dest, tamPg))
+                .append("; n++; continue dispatch;\n");
+        sb.append(in).append("}\n");
+        sb.append(in).append("if (!c.isValidJump(").append(dest).append(")) break run; pc = ").append(dest)
+                .append("; n++; continue run;\n");
+    }
+
+    private void branch(StringBuilder sb, String in, String cond, int dest, int frame, int version) {
+        sb.append(in).append("if (").append(cond).append(") {\n");
+        jump(sb, in + "    ", dest, frame, version);
+        sb.append(in).append("}\n");
+        sb.append(in).append("pc++; n++;\n");
+    }
+
+    private static void branchIndirect(StringBuilder sb, String in, String cond, int p) {
+        sb.append(in).append("if (").append(cond).append(") { int d = c.readMemory(").append(p)
+                .append("); if (c.irpt != NONE || !c.isValidJump(d)) break run; pc = d; n++; continue run; }\n");
+        sb.append(in).append("pc++; n++;\n");
+    }
+
+    private void spill(StringBuilder sb, String in) {
+        for (int r = 0; r < nRegs; r++) sb.append(in).append("reg[").append(r).append("] = r").append(r).append(";\n");
+    }
+
+    // Compila o fonte em memória; devolve o .class, ou null com erro de compilação
+    private byte[] compile(String source) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JavaFileObject file = new SimpleJavaFileObject(
+                URI.create("string:///hardware/" + CLASS_NAME + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        StandardJavaFileManager std = javac.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        ForwardingJavaFileManager<StandardJavaFileManager> files = new ForwardingJavaFileManager<>(std) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                       JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return out;
+                    }
+                };
+            }
+        };
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-classpath", classPath, "-g:none", "-nowarn", "-proc:none");
+        boolean ok = javac.getTask(null, files, diagnostics, options, null, Collections.singletonList(file)).call();
+        if (!ok) {
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                if (d.getKind() == Diagnostic.Kind.ERROR) {
+                    System.err.println("Tradução de região: " + d.getMessage(null));
+                    break;
+                }
+            }
+            return null;
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,110 @@
+package hardware;
+
+/**
+ * TLB (Translation Lookaside Buffer) em software, uma por CPU.
+ *
+ * Guarda traduções página lógica → frame físico, marcadas com o pid do dono,
+ * em uma tabela de mapeamento direto (entrada = página mod tamanho). É
+ * preenchida na falta (miss) a partir da tabela de páginas do SO e esvaziada
+ * na troca de contexto, na desalocação do processo e no page-out.
+ *
+ * Só o núcleo dono acessa as entradas. Outros núcleos pedem o esvaziamento
+ * com {@link #shootdown()}, atendido pelo dono na próxima consulta.
+ */
+public class TLB {
+    public static final int DEFAULT_SIZE = 64;
+
+    private final int mask;
+    private final int[] pids;   // pid dono da entrada (-1 = entrada vazia)
+    private final int[] pages;  // página lógica
+    private final int[] frames; // frame físico
+
+    private long hits;
+    private long misses;
+    private volatile boolean flushRequested; // pedido de shootdown vindo de outro núcleo
+
+    public TLB() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size número de entradas (arredondado para potência de 2)
+     */
+    public TLB(int size) {
+        int n = Integer.highestOneBit(Math.max(1, size - 1) << 1);
+        this.mask = n - 1;
+        this.pids = new int[n];
+        this.pages = new int[n];
+        this.frames = new int[n];
+        flush();
+    }
+
+    /**
+     * Procura a tradução de uma página.
+     *
+     * @return o frame físico, ou -1 em caso de falta
+     */
+    public int lookup(int pid, int page) {
+        if (flushRequested) {
+            flushRequested = false;
+            flush();
+        }
+        int i = page & mask;
+        if (pids[i] == pid && pages[i] == page) {
+            hits++;
+            return frames[i];
+        }
+        misses++;
+        return -1;
+    }
+
+    public void insert(int pid, int page, int frame) {
+        int i = page & mask;
+        pids[i] = pid;
+        pages[i] = page;
+        frames[i] = frame;
+    }
+
+    /** Remove a entrada de uma página (page-out). */
+    public void invalidate(int pid, int page) {
+        int i = page & mask;
+        if (pids[i] == pid && pages[i] == page) {
+            pids[i] = -1;
+        }
+    }
+
+    /** Remove todas as entradas de um processo (desalocação). */
+    public void flushPid(int pid) {
+        for (int i = 0; i < pids.length; i++) {
+            if (pids[i] == pid) pids[i] = -1;
+        }
+    }
+
+    /** Pede que o núcleo dono esvazie a TLB antes da próxima tradução. */
+    public void shootdown() {
+        flushRequested = true;
+    }
+
+    /** Esvazia a TLB (troca de contexto). */
+    public void flush() {
+        for (int i = 0; i < pids.length; i++) {
+            pids[i] = -1;
+        }
+    }
+
+    public int getSize() { return pids.length; }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public String toString() {
+        long total = hits + misses;
+        double rate = total == 0 ? 0.0 : (100.0 * hits) / total;
+        return String.format("TLB[%d entradas] hits=%d misses=%d taxa de acerto=%.2f%%", pids.length, hits, misses, rate);
+    }
+}
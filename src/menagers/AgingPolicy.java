@@ -0,0 +1,45 @@
+package menagers;
+
+/**
+ * Aproximação de LRU por envelhecimento (aging): cada frame tem um contador
+ * de 32 bits; a cada page fault sem frame livre o contador é deslocado uma
+ * posição para a direita e o bit R entra no bit mais alto. A vítima é o
+ * frame com o menor contador (usado há mais tempo, ou com menos frequência).
+ */
+public class AgingPolicy implements ReplacementPolicy {
+    private static final int NEWEST = 0x80000000;
+
+    private final int[] age;
+
+    public AgingPolicy(int frameQuantity) {
+        this.age = new int[frameQuantity];
+    }
+
+    @Override
+    public String name() {
+        return "aging";
+    }
+
+    @Override
+    public void onLoad(int frame, long key) {
+        age[frame] = NEWEST; // recém-carregada conta como referenciada agora
+    }
+
+    @Override
+    public void onFree(int frame) {
+        age[frame] = 0;
+    }
+
+    @Override
+    public int selectVictim(Frames frames) {
+        int victim = -1;
+        for (int f = 0; f < age.length; f++) {
+            if (!frames.isEvictable(f)) continue;
+            age[f] = (age[f] >>> 1) | (frames.testAndClearReferenced(f) ? NEWEST : 0);
+            if (victim < 0 || Integer.compareUnsigned(age[f], age[victim]) < 0) {
+                victim = f;
+            }
+        }
+        return victim;
+    }
+}
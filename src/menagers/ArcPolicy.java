@@ -0,0 +1,114 @@
+package menagers;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * ARC (Adaptive Replacement Cache) adaptado à paginação.
+ *
+ * T1 guarda as páginas vistas uma vez (recência) e T2 as que foram
+ * referenciadas de novo depois de carregadas (frequência). B1 e B2 guardam
+ * só a identidade (pid, página) das vítimas recentes de cada lista. Um page
+ * fault em uma página de B1 indica que T1 era pequena demais e aumenta o alvo
+ * {@code p}; em B2, diminui. A página que volta de B1/B2 entra em T2.
+ *
+ * Como a CPU não avisa cada acerto, a promoção T1→T2 é feita pelo bit R
+ * na hora de escolher a vítima, como na variante CAR (ARC com relógio).
+ */
+public class ArcPolicy implements ReplacementPolicy {
+    private final int capacity;
+    private final LinkedHashSet<Integer> t1 = new LinkedHashSet<>();
+    private final LinkedHashSet<Integer> t2 = new LinkedHashSet<>();
+    private final LinkedHashSet<Long> b1 = new LinkedHashSet<>();
+    private final LinkedHashSet<Long> b2 = new LinkedHashSet<>();
+    private int p; // tamanho alvo de T1
+
+    private long ghostHits;
+
+    public ArcPolicy(int frameQuantity) {
+        this.capacity = frameQuantity;
+    }
+
+    @Override
+    public String name() {
+        return "arc";
+    }
+
+    @Override
+    public void onLoad(int frame, long key) {
+        t1.remove(frame);
+        t2.remove(frame);
+        if (b1.contains(key)) {
+            p = Math.min(capacity, p + Math.max(1, b2.size() / b1.size()));
+            b1.remove(key);
+            ghostHits++;
+            t2.add(frame);
+        } else if (b2.contains(key)) {
+            p = Math.max(0, p - Math.max(1, b1.size() / b2.size()));
+            b2.remove(key);
+            ghostHits++;
+            t2.add(frame);
+        } else {
+            t1.add(frame);
+        }
+    }
+
+    @Override
+    public void onFree(int frame) {
+        t1.remove(frame);
+        t2.remove(frame);
+    }
+
+    @Override
+    public int selectVictim(Frames frames) {
+        int limit = 2 * (t1.size() + t2.size()) + 1;
+        for (int i = 0; i < limit && (!t1.isEmpty() || !t2.isEmpty()); i++) {
+            boolean fromT1 = !t1.isEmpty() && (t1.size() >= Math.max(1, p) || t2.isEmpty());
+            LinkedHashSet<Integer> list = fromT1 ? t1 : t2;
+            int f = list.iterator().next();
+            list.remove(f);
+            if (!frames.isEvictable(f)) {
+                list.add(f); // IO em andamento: tenta o próximo
+                continue;
+            }
+            if (frames.testAndClearReferenced(f)) {
+                t2.add(f); // referenciada de novo: vai (ou volta) para o fim de T2
+                continue;
+            }
+            remember(fromT1 ? b1 : b2, frames.pageKey(f));
+            return f;
+        }
+        return anyEvictable(frames);
+    }
+
+    // guarda a identidade da vítima, limitando B1 + B2 à capacidade
+    private void remember(LinkedHashSet<Long> ghosts, long key) {
+        ghosts.add(key);
+        while (b1.size() + b2.size() > capacity) {
+            LinkedHashSet<Long> trim = (!b1.isEmpty() && (t1.size() + b1.size() > capacity || b2.isEmpty())) ? b1 : b2;
+            Iterator<Long> it = trim.iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    private int anyEvictable(Frames frames) {
+        for (LinkedHashSet<Integer> list : Arrays.asList(t1, t2)) {
+            for (Iterator<Integer> it = list.iterator(); it.hasNext(); ) {
+                int f = it.next();
+                if (frames.isEvictable(f)) {
+                    it.remove();
+                    return f;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String describe() {
+        return String.format("p=%d T1=%d T2=%d B1=%d B2=%d acertos fantasma=%d",
+                p, t1.size(), t2.size(), b1.size(), b2.size(), ghostHits);
+    }
+}
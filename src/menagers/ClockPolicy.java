@@ -0,0 +1,52 @@
+package menagers;
+
+/**
+ * Relógio (segunda chance): o ponteiro percorre os frames em círculo; uma
+ * página com o bit R ligado tem o bit zerado e é poupada nesta volta, a
+ * primeira sem R é a vítima.
+ */
+public class ClockPolicy implements ReplacementPolicy {
+    private final int frameQuantity;
+    private int hand;
+    private long secondChances;
+
+    public ClockPolicy(int frameQuantity) {
+        this.frameQuantity = frameQuantity;
+    }
+
+    @Override
+    public String name() {
+        return "clock";
+    }
+
+    @Override
+    public void onLoad(int frame, long key) {
+    }
+
+    @Override
+    public void onFree(int frame) {
+    }
+
+    @Override
+    public int selectVictim(Frames frames) {
+        int fallback = -1;
+        // duas voltas bastam: na segunda todos os bits R já foram zerados
+        for (int i = 0; i < 2 * frameQuantity; i++) {
+            int f = hand;
+            hand = (hand + 1) % frameQuantity;
+            if (!frames.isEvictable(f)) continue;
+            if (fallback < 0) fallback = f;
+            if (frames.testAndClearReferenced(f)) {
+                secondChances++;
+                continue;
+            }
+            return f;
+        }
+        return fallback;
+    }
+
+    @Override
+    public String describe() {
+        return "ponteiro=" + hand + " segundas chances=" + secondChances;
+    }
+}
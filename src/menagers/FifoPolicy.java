@@ -0,0 +1,44 @@
+package menagers;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * FIFO: a vítima é a página carregada há mais tempo, sem olhar o bit R.
+ */
+public class FifoPolicy implements ReplacementPolicy {
+    private final LinkedHashSet<Integer> order = new LinkedHashSet<>(); // ordem de carga
+
+    @Override
+    public String name() {
+        return "fifo";
+    }
+
+    @Override
+    public void onLoad(int frame, long key) {
+        order.remove(frame);
+        order.add(frame);
+    }
+
+    @Override
+    public void onFree(int frame) {
+        order.remove(frame);
+    }
+
+    @Override
+    public int selectVictim(Frames frames) {
+        for (Iterator<Integer> it = order.iterator(); it.hasNext(); ) {
+            int f = it.next();
+            if (frames.isEvictable(f)) {
+                it.remove();
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String describe() {
+        return "fila=" + order.size();
+    }
+}
@@ -1,54 +1,382 @@
 package menagers;
 
-import hardware.Opcode;
-import hardware.Word;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Gerente de memória: controla quais frames estão livres.
+ *
+ * Alocação pelo sistema buddy: os frames livres formam blocos de 2^k frames
+ * alinhados em múltiplos de 2^k, em uma lista por ordem k. Um pedido de 2^k
+ * frames contíguos usa o menor bloco que serve e divide o resto ao meio
+ * (cada metade vira bloco livre da ordem abaixo); frame liberado se junta
+ * ao seu "buddy" (o bloco vizinho de mesmo tamanho, índice XOR 2^k) enquanto
+ * ele também estiver livre. Frame avulso (page fault) sai do menor bloco
+ * livre, preservando os grandes. Páginas consecutivas alocadas juntas
+ * ({@link #allocateFrames}) ficam em frames contíguos, em blocos tão grandes
+ * quanto possível. {@link #fragmentationReport()} mostra os blocos livres por
+ * ordem e quanto da memória livre não serve para um bloco de cada tamanho.
+ *
+ * Um bitmap (64 frames por {@code long}, bit 1 = ocupado) responde
+ * {@link #isAllocated} em O(1).
+ *
+ * Também mantém a tabela invertida de frames (frame → pid, página, flags),
+ * atualizada na alocação, na desalocação, no page-in e no page-out, para
+ * achar o dono de um frame em O(1) (ver {@link #getOwnerPid}).
+ *
+ * A vítima de um page fault sem frame livre é escolhida pela
+ * {@link ReplacementPolicy} configurada (padrão: clock). O bit R das páginas
+ * vem da tabela de páginas dos processos, via {@link ReferenceBits}.
+ *
+ * Métodos de alocação são synchronized: chamados pelos núcleos (page fault) e pelo shell.
+ */
 public class MemoryManager {
     private int memSize;        // tamanho total da memória em palavras
     private int pgSize;         // tamanho da página / frame em palavras
     private int frameQuantity;     // número total de frames = memSize / pgSize
-    private boolean[] frames;  // vetor que indica se o frame i está ocupado (true) ou livre (false)
-    private Word[] pos;
+    private final long[] bitmap;   // bit f%64 da palavra f/64: frame f ocupado
+    private int freeCount;         // frames livres
+
+    // Buddy: listas duplamente encadeadas (pelos índices) de blocos livres por ordem
+    private final int maxOrder;      // maior bloco: 2^maxOrder frames
+    private final int[] freeHead;    // freeHead[k]: primeiro bloco livre de ordem k, ou -1
+    private final int[] freeBlocks;  // blocos livres por ordem
+    private final int[] nextFree;    // próximo bloco livre da mesma ordem (só no frame inicial do bloco)
+    private final int[] prevFree;
+    private final byte[] blockOrder; // ordem do bloco livre que começa no frame, ou -1
+    private long splits;
+    private long merges;
+
+    // Tabela invertida: dono de cada frame
+    public static final int NO_OWNER = -1;
+    public static final int FLAG_IO = 1; // frame em page-in/page-out: não pode ser vítima
+    private final int[] ownerPid;
+    private final int[] ownerPage;
+    private final byte[] frameFlags;
+    private int ioCount; // frames com FLAG_IO
+    private final int[] refCount; // tabelas de páginas que mapeiam o frame (>1: texto compartilhado)
+
+    /** Acesso ao bit R (referenciada) da página (pid, página), mantido pela CPU. */
+    public interface ReferenceBits {
+        boolean testAndClear(int pid, int page);
+    }
+
+    // Substituição de páginas
+    public static final String DEFAULT_POLICY = "clock";
+    private ReplacementPolicy policy;
+    private ReferenceBits referenceBits = (pid, page) -> false;
+    private static final int[] NO_PINS = {};
+    private int[] pinned = NO_PINS; // frames fora da escolha da vítima em andamento
+    private final Map<String, long[]> policyStats = new LinkedHashMap<>(); // nome → {faults, vítimas}
+    private final ReplacementPolicy.Frames frameView = new ReplacementPolicy.Frames() {
+        @Override
+        public int size() {
+            return frameQuantity;
+        }
+
+        @Override
+        public boolean isEvictable(int frame) {
+            if (!isAllocated(frame) || (frameFlags[frame] & FLAG_IO) != 0 || ownerPid[frame] == NO_OWNER) return false;
+            for (int pin : pinned) {
+                if (pin == frame) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean testAndClearReferenced(int frame) {
+            return ownerPid[frame] != NO_OWNER && referenceBits.testAndClear(ownerPid[frame], ownerPage[frame]);
+        }
+
+        @Override
+        public long pageKey(int frame) {
+            return MemoryManager.pageKey(ownerPid[frame], ownerPage[frame]);
+        }
+    };
 
     public MemoryManager(int memSize, int pgSize) {
         this.memSize = memSize;
         this.pgSize = pgSize;
         this.frameQuantity = memSize / pgSize;
-        this.frames = new boolean[frameQuantity];
-        pos = new Word[memSize];
-        for (int i = 0; i < memSize; i++) {
-            pos[i] = new Word(Opcode.DATA, 0, 0, 0);
+        this.bitmap = new long[(frameQuantity + 63) >>> 6];
+        this.freeCount = frameQuantity;
+        this.ownerPid = new int[frameQuantity];
+        this.ownerPage = new int[frameQuantity];
+        this.frameFlags = new byte[frameQuantity];
+        this.refCount = new int[frameQuantity];
+        Arrays.fill(ownerPid, NO_OWNER);
+        Arrays.fill(ownerPage, NO_OWNER);
+        this.policy = ReplacementPolicy.forName(DEFAULT_POLICY, frameQuantity);
+        // bits além do último frame ficam marcados como ocupados para nunca serem alocados
+        int tail = frameQuantity & 63;
+        if (tail != 0) {
+            bitmap[bitmap.length - 1] = -1L << tail;
+        }
+
+        this.maxOrder = 31 - Integer.numberOfLeadingZeros(Math.max(1, frameQuantity));
+        this.freeHead = new int[maxOrder + 1];
+        this.freeBlocks = new int[maxOrder + 1];
+        this.nextFree = new int[frameQuantity];
+        this.prevFree = new int[frameQuantity];
+        this.blockOrder = new byte[frameQuantity];
+        Arrays.fill(freeHead, -1);
+        Arrays.fill(blockOrder, (byte) -1);
+        // memória inicial = maiores blocos alinhados que cabem (frameQuantity pode não ser potência de 2)
+        for (int f = 0; f < frameQuantity; ) {
+            int k = Math.min(Integer.numberOfTrailingZeros(f | (1 << maxOrder)), 31 - Integer.numberOfLeadingZeros(frameQuantity - f));
+            pushFree(f, k);
+            f += 1 << k;
         }
     }
 
+    // ============== BUDDY ==============
+
+    private void pushFree(int block, int order) {
+        blockOrder[block] = (byte) order;
+        prevFree[block] = -1;
+        nextFree[block] = freeHead[order];
+        if (freeHead[order] >= 0) prevFree[freeHead[order]] = block;
+        freeHead[order] = block;
+        freeBlocks[order]++;
+    }
+
+    private void removeFree(int block) {
+        int order = blockOrder[block];
+        if (prevFree[block] >= 0) nextFree[prevFree[block]] = nextFree[block];
+        else freeHead[order] = nextFree[block];
+        if (nextFree[block] >= 0) prevFree[nextFree[block]] = prevFree[block];
+        blockOrder[block] = -1;
+        freeBlocks[order]--;
+    }
+
+    /**
+     * Tira da lista um bloco de 2^order frames contíguos: o menor bloco livre
+     * que serve, dividido ao meio até o tamanho pedido. Os frames ficam
+     * ocupados (sem dono).
+     *
+     * @return primeiro frame do bloco, ou -1 se não há bloco livre desse tamanho
+     */
+    private int takeBlock(int order) {
+        int k = order;
+        while (k <= maxOrder && freeHead[k] < 0) k++;
+        if (k > maxOrder) return -1;
+        int block = freeHead[k];
+        removeFree(block);
+        while (k > order) {
+            k--;
+            pushFree(block + (1 << k), k); // metade de cima volta livre
+            splits++;
+        }
+        for (int f = block; f < block + (1 << order); f++) {
+            bitmap[f >>> 6] |= 1L << f;
+            refCount[f] = 1;
+        }
+        freeCount -= 1 << order;
+        return block;
+    }
+
+    private void setFree(int frame) {
+        policy.onFree(frame);
+        ownerPid[frame] = NO_OWNER;
+        ownerPage[frame] = NO_OWNER;
+        if ((frameFlags[frame] & FLAG_IO) != 0) ioCount--;
+        frameFlags[frame] = 0;
+        refCount[frame] = 0;
+        bitmap[frame >>> 6] &= ~(1L << frame);
+        freeCount++;
+        // junta com o buddy enquanto ele for um bloco livre inteiro da mesma ordem
+        int block = frame;
+        int order = 0;
+        while (order < maxOrder) {
+            int buddy = block ^ (1 << order);
+            if (buddy >= frameQuantity || blockOrder[buddy] != order) break;
+            removeFree(buddy);
+            block = Math.min(block, buddy);
+            order++;
+            merges++;
+        }
+        pushFree(block, order);
+    }
+
+    private void register(int frame, int pid, int page) {
+        ownerPid[frame] = pid;
+        ownerPage[frame] = page;
+        policy.onLoad(frame, pageKey(pid, page));
+    }
+
+    public synchronized boolean isAllocated(int frame) {
+        return (bitmap[frame >>> 6] & (1L << frame)) != 0;
+    }
+
+    public synchronized int getFreeCount() {
+        return freeCount;
+    }
+
     /**
      * Aloca frames de memória para armazenar um processo do tamanho especificado.
      *
      * @param wordSize tamanho do processo em palavras.
      * @return um array com os índices dos frames alocados ou {@code null} se não houver memória suficiente.
      */
-    public int[] allocate(int wordSize) {
+    public synchronized int[] allocate(int wordSize) {
+        return allocate(wordSize, NO_OWNER);
+    }
+
+    /**
+     * Aloca frames para o processo {@code pid}; a página i fica no frame
+     * {@code pgTable[i]} e a tabela invertida registra (pid, i).
+     */
+    public synchronized int[] allocate(int wordSize, int pid) {
         int pgNumber = (int) Math.ceil((double) wordSize / getPgSize());
-        int[] pgTable = new int[pgNumber];
-        int count = 0;
-
-        // Buscar frames livres
-        for(int i = 0; i < frameQuantity && count < pgNumber; i++) {
-            if(!frames[i]) {
-                frames[i] = true;
-                pgTable[count++] = i;
+        int[] pages = new int[pgNumber];
+        for (int i = 0; i < pgNumber; i++) pages[i] = i;
+        return allocateFrames(pid, pages);
+    }
+
+    /**
+     * Aloca um frame para cada página de {@code pages}, em blocos buddy tão
+     * grandes quanto possível: páginas consecutivas ficam em frames contíguos.
+     *
+     * @return frames[i] para pages[i], ou {@code null} se não há frames livres suficientes
+     */
+    public synchronized int[] allocateFrames(int pid, int[] pages) {
+        if (pages.length > freeCount) {
+            return null; // não cabe: nada a desfazer
+        }
+        int[] frames = new int[pages.length];
+        int i = 0;
+        while (i < pages.length) {
+            int run = 1; // páginas consecutivas a partir de i
+            while (i + run < pages.length && pages[i + run] == pages[i] + run) run++;
+            int order = Math.min(maxOrder, 31 - Integer.numberOfLeadingZeros(run));
+            int block;
+            while ((block = takeBlock(order)) < 0) order--; // sempre há bloco de ordem 0 (freeCount)
+            for (int j = 0; j < 1 << order; j++, i++) {
+                frames[i] = block + j;
+                register(block + j, pid, pages[i]);
             }
         }
-        
-        // Se não conseguiu alocar todos os frames necessários
-        if(count < pgNumber) {
-            // Desfazer alocações parciais
-            for(int i = 0; i < count; i++) {
-                frames[pgTable[i]] = false;
+        return frames;
+    }
+
+    /**
+     * Aloca um único frame (page fault).
+     *
+     * @return índice do frame, ou -1 se não houver frame livre.
+     */
+    public synchronized int allocateFrame() {
+        return allocateFrame(NO_OWNER, NO_OWNER);
+    }
+
+    /** Aloca um frame já registrado como página {@code page} do processo {@code pid}. */
+    public synchronized int allocateFrame(int pid, int page) {
+        int f = takeBlock(0);
+        if (f >= 0) {
+            register(f, pid, page);
+        }
+        return f;
+    }
+
+    // ============== TABELA INVERTIDA ==============
+
+    /** Registra que o frame passa a guardar a página {@code page} do processo {@code pid}. */
+    public synchronized void setOwner(int frame, int pid, int page) {
+        if (ownerPid[frame] == pid && ownerPage[frame] == page) return;
+        ownerPid[frame] = pid;
+        ownerPage[frame] = page;
+        policy.onLoad(frame, pageKey(pid, page));
+    }
+
+    /**
+     * Troca só o processo dono registrado (o dono anterior deixou de usar um
+     * frame compartilhado); a página e o estado da política não mudam.
+     */
+    public synchronized void moveOwner(int frame, int pid) {
+        ownerPid[frame] = pid;
+    }
+
+    /** Como {@link #moveOwner(int, int)}, trocando também a página (frame unido por conteúdo). */
+    public synchronized void moveOwner(int frame, int pid, int page) {
+        ownerPid[frame] = pid;
+        ownerPage[frame] = page;
+    }
+
+    /** Mais uma tabela de páginas passa a mapear o frame. */
+    public synchronized int addRef(int frame) {
+        return ++refCount[frame];
+    }
+
+    /**
+     * Uma tabela de páginas deixou de mapear o frame; o frame só é liberado
+     * quando a última referência sai.
+     *
+     * @return referências restantes
+     */
+    public synchronized int dropRef(int frame) {
+        if (!isAllocated(frame)) return 0;
+        if (--refCount[frame] <= 0) {
+            setFree(frame);
+            return 0;
+        }
+        return refCount[frame];
+    }
+
+    public synchronized int getRefCount(int frame) {
+        return refCount[frame];
+    }
+
+    /**
+     * Libera os frames do processo dentre {@code frames} (os da tabela de
+     * páginas e os em IO para ele), sem varrer a memória: frame que já mudou
+     * de dono, ou repetido, é ignorado.
+     */
+    public synchronized int freeFramesOf(int pid, Collection<Integer> frames) {
+        int n = 0;
+        for (int f : frames) {
+            if (ownerPid[f] == pid && isAllocated(f)) {
+                setFree(f);
+                n++;
             }
-            return null;
         }
-        return pgTable;
+        return n;
+    }
+
+    /** Processo dono do frame, ou {@link #NO_OWNER}. */
+    public synchronized int getOwnerPid(int frame) {
+        return ownerPid[frame];
+    }
+
+    /** Página lógica guardada no frame, ou {@link #NO_OWNER}. */
+    public synchronized int getOwnerPage(int frame) {
+        return ownerPage[frame];
+    }
+
+    public synchronized int getFlags(int frame) {
+        return frameFlags[frame];
+    }
+
+    public synchronized void setFlag(int frame, int flag) {
+        if ((flag & FLAG_IO) != 0 && (frameFlags[frame] & FLAG_IO) == 0) ioCount++;
+        frameFlags[frame] |= flag;
+    }
+
+    public synchronized void clearFlag(int frame, int flag) {
+        if ((flag & FLAG_IO) != 0 && (frameFlags[frame] & FLAG_IO) != 0) ioCount--;
+        frameFlags[frame] &= ~flag;
+    }
+
+    /** Frames em page-in/page-out: o fim de cada IO pode liberar uma vítima. */
+    public synchronized int getIoCount() {
+        return ioCount;
+    }
+
+    /** Libera um único frame. */
+    public synchronized void freeFrame(int frame) {
+        if (frame >= 0 && frame < frameQuantity && isAllocated(frame)) {
+            setFree(frame);
+        }
     }
 
     /**
@@ -57,14 +385,11 @@ public class MemoryManager {
      * @param pgTable array com os índices dos frames a serem desalocados.
      * @return {@code true} se a desalocação foi realizada, ou {@code false} se a tabela for nula ou vazia.
      */
-    public boolean deallocate(int[] pgTable) {
+    public synchronized boolean deallocate(int[] pgTable) {
         if (pgTable == null || pgTable.length == 0) return false;
 
         for (int i = 0; i < pgTable.length; i++) {
-            int frameIndex = pgTable[i];
-            if (frameIndex >= 0 && frameIndex < frames.length) {
-                frames[frameIndex] = false;
-            }
+            freeFrame(pgTable[i]);
         }
         return true;
     }
@@ -73,46 +398,90 @@ public class MemoryManager {
      * Exibe no console o estado atual dos frames de memória.
      * Mostra "1" para frames ocupados e "0" para frames livres.
      */
-    public void showStatus(){
+    public synchronized void showStatus(){
         System.out.println("Frames");
-        for(boolean frame:frames) {
-            if(frame) {
-                System.out.println("1");
-            }else {
-                System.out.println("0");
-            }
+        for (int i = 0; i < frameQuantity; i++) {
+            System.out.println(isAllocated(i) ? "1" : "0");
         }
     }
 
     /**
-     * Encontra um frame ocupado para ser usado como vítima em substituição.
-     * Estratégia simples: escolhe o primeiro frame ocupado.
+     * Encontra um frame ocupado para ser usado como vítima em substituição,
+     * segundo a política configurada. Frames em IO não são vítimas, nem os
+     * frames em {@code pinned} (páginas de que a instrução que faltou precisa).
      *
-     * @return índice do frame vítima, ou -1 se nenhum estiver ocupado.
+     * @return índice do frame vítima, ou -1 se nenhum puder ser substituído.
      */
-    public int findVictimFrame() {
-        for (int i = 0; i < frames.length; i++) {
-            if (frames[i]) return i;
+    public synchronized int findVictimFrame(int... pinned) {
+        if (freeCount == frameQuantity) return -1;
+        this.pinned = pinned;
+        try {
+            int f = policy.selectVictim(frameView);
+            if (f >= 0) stats()[1]++;
+            return f;
+        } finally {
+            this.pinned = NO_PINS;
         }
-        return -1;
     }
 
+    // ============== POLÍTICA DE SUBSTITUIÇÃO ==============
+
+    /** Identidade de uma página: pid nos 32 bits altos, página nos baixos. */
+    public static long pageKey(int pid, int page) {
+        return ((long) pid << 32) | (page & 0xffffffffL);
+    }
 
     /**
-     * Escreve uma palavra na memória no endereço especificado
-     * @param endereco posição na memória
-     * @param valor palavra a ser escrita
-     * @return true se a operação foi bem-sucedida, false caso endereço inválido
+     * Troca a política de substituição. A nova política recebe os frames
+     * ocupados em ordem de índice (a ordem de carga anterior se perde).
      */
-    public boolean write(int endereco, int valor) {
-        if (endereco < 0 || endereco >= pos.length) {
-            System.out.println("Erro: endereço inválido na memória: " + endereco);
-            return false;
+    public synchronized void setReplacementPolicy(ReplacementPolicy p) {
+        policy = p;
+        for (int f = 0; f < frameQuantity; f++) {
+            if (isAllocated(f) && ownerPid[f] != NO_OWNER) {
+                p.onLoad(f, pageKey(ownerPid[f], ownerPage[f]));
+            }
         }
-        pos[endereco] = new Word(Opcode.DATA, 0, 0, valor);
-        return true;
     }
 
+    public synchronized ReplacementPolicy getReplacementPolicy() {
+        return policy;
+    }
+
+    public synchronized void setReferenceBits(ReferenceBits referenceBits) {
+        this.referenceBits = referenceBits;
+    }
+
+    /** Conta um page fault para a política corrente. */
+    public synchronized void recordFault() {
+        stats()[0]++;
+    }
+
+    public synchronized long getFaults() {
+        return stats()[0];
+    }
+
+    public synchronized long getEvictions() {
+        return stats()[1];
+    }
+
+    private long[] stats() {
+        return policyStats.computeIfAbsent(policy.name(), k -> new long[2]);
+    }
+
+    /** Page faults e vítimas escolhidas por política (desde o início), e o estado da política corrente. */
+    public synchronized String policyReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Política de substituição: %s %s\n", policy.name(), policy.describe()));
+        sb.append(String.format("%-8s %12s %12s\n", "POLÍTICA", "FAULTS", "VÍTIMAS"));
+        stats();
+        for (Map.Entry<String, long[]> e : policyStats.entrySet()) {
+            sb.append(String.format("%-8s %12d %12d\n", e.getKey(), e.getValue()[0], e.getValue()[1]));
+        }
+        return sb.toString();
+    }
+
+
     /*GETTERS E SETTERS*/
     public int getMemSize() {
         return memSize;
@@ -134,8 +503,13 @@ public class MemoryManager {
         return frameQuantity;
     }
 
-    public boolean[] getFrames() {
-        return frames;
+    /** Cópia do estado dos frames (true = ocupado), para exibição. */
+    public synchronized boolean[] getFrames() {
+        boolean[] v = new boolean[frameQuantity];
+        for (int i = 0; i < frameQuantity; i++) {
+            v[i] = isAllocated(i);
+        }
+        return v;
     }
 
 
@@ -144,13 +518,47 @@ public class MemoryManager {
      *
      * @return o índice do frame livre, ou -1 se não houver nenhum.
      */
-    public int findFreeFrame() {
-        for (int i = 0; i < frames.length; i++) {
-            if (!frames[i]) {
-                return i;
-            }
+    public synchronized int findFreeFrame() {
+        for (int k = 0; k <= maxOrder; k++) {
+            if (freeHead[k] >= 0) return freeHead[k];
         }
         return -1; // nenhum frame livre
     }
 
+    /** Maior bloco de frames livres contíguos disponível (potência de 2), ou 0. */
+    public synchronized int getLargestFreeBlock() {
+        for (int k = maxOrder; k >= 0; k--) {
+            if (freeHead[k] >= 0) return 1 << k;
+        }
+        return 0;
+    }
+
+    /**
+     * Fração da memória livre que não serve para um bloco de 2^order frames
+     * contíguos (0 = nada fragmentado, 1 = nenhum bloco desse tamanho).
+     */
+    public synchronized double unusableFreeIndex(int order) {
+        if (freeCount == 0) return 0;
+        long usable = 0;
+        for (int k = order; k <= maxOrder; k++) {
+            usable += (long) freeBlocks[k] << k;
+        }
+        return (double) (freeCount - usable) / freeCount;
+    }
+
+    /** Blocos livres por ordem e fragmentação da memória livre. */
+    public synchronized String fragmentationReport() {
+        StringBuilder sb = new StringBuilder("Buddy: blocos livres por tamanho");
+        for (int k = 0; k <= maxOrder; k++) {
+            if (freeBlocks[k] > 0) sb.append(String.format(" %dx%d", freeBlocks[k], 1 << k));
+        }
+        if (freeCount == 0) sb.append(" (nenhum)");
+        sb.append(String.format(" | maior bloco %d frames | %d divisões, %d junções\n", getLargestFreeBlock(), splits, merges));
+        sb.append("Livre inutilizável para blocos de");
+        for (int k = 1; k <= Math.min(maxOrder, 4); k++) {
+            sb.append(String.format(" %d: %.0f%%", 1 << k, 100 * unusableFreeIndex(k)));
+        }
+        return sb.append("\n").toString();
+    }
+
 }
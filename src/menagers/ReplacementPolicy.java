@@ -0,0 +1,67 @@
+package menagers;
+
+/**
+ * Política de substituição de páginas usada pelo {@link MemoryManager}.
+ *
+ * O GM avisa a política quando um frame recebe uma página ({@link #onLoad})
+ * e quando é liberado ({@link #onFree}); no page fault sem frame livre pede
+ * uma vítima ({@link #selectVictim}). Todas as chamadas acontecem com o
+ * monitor do GM tomado, então as políticas não precisam de sincronização.
+ *
+ * Implementações: {@link FifoPolicy}, {@link ClockPolicy} (segunda chance),
+ * {@link AgingPolicy} (aproximação de LRU) e {@link ArcPolicy}.
+ */
+public interface ReplacementPolicy {
+
+    /** Visão dos frames oferecida pelo GM às políticas. */
+    interface Frames {
+        int size();
+
+        /** Frame ocupado e sem IO em andamento. */
+        boolean isEvictable(int frame);
+
+        /** Lê e zera o bit R (referenciada) da página guardada no frame. */
+        boolean testAndClearReferenced(int frame);
+
+        /** Identidade (pid, página) do conteúdo do frame; ver {@link MemoryManager#pageKey}. */
+        long pageKey(int frame);
+    }
+
+    String name();
+
+    /** O frame passou a guardar a página {@code key}. */
+    void onLoad(int frame, long key);
+
+    /** O frame foi devolvido ao GM. */
+    void onFree(int frame);
+
+    /** @return frame vítima, ou -1 se nenhum frame pode ser substituído */
+    int selectVictim(Frames frames);
+
+    /** Estado interno resumido, para o relatório {@code vm}. */
+    default String describe() {
+        return "";
+    }
+
+    /**
+     * Cria uma política pelo nome: fifo, clock, aging ou arc.
+     *
+     * @throws IllegalArgumentException se o nome não é conhecido
+     */
+    static ReplacementPolicy forName(String name, int frameQuantity) {
+        switch (name.toLowerCase()) {
+            case "fifo":
+                return new FifoPolicy();
+            case "clock":
+                return new ClockPolicy(frameQuantity);
+            case "aging":
+            case "lru":
+                return new AgingPolicy(frameQuantity);
+            case "arc":
+                return new ArcPolicy(frameQuantity);
+            default:
+                throw new IllegalArgumentException("Política de substituição desconhecida: " + name
+                        + " (use fifo, clock, aging ou arc)");
+        }
+    }
+}
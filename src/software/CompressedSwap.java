@@ -0,0 +1,213 @@
+package software;
+
+import hardware.Memory;
+import hardware.Opcode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pool de swap comprimido em RAM, na frente do disco (como o zswap).
+ *
+ * Página suja que sai da memória é comprimida e guardada aqui, sem IO; a
+ * falta seguinte na página descomprime direto no frame. O pool tem tamanho
+ * limitado (em bytes comprimidos): quando uma página nova não cabe, as mais
+ * antigas (LRU) são descomprimidas e gravadas no disco. A página lida do pool
+ * sai dele (a cópia do disco, se houver, está velha: a página volta suja).
+ *
+ * Compressão própria para páginas de {@link hardware.Word}, em que quase
+ * tudo é {@code DATA,-1,-1,x} ou posição vazia {@code ___}: cada posição vira
+ * uma marca de 1 byte, seguida só do que não é implícito; posições iguais à
+ * anterior viram contagem de repetição.
+ *
+ * Não é sincronizado: o {@link Pager} só usa com o {@code vmLock}.
+ */
+public class CompressedSwap {
+    public static final int DEFAULT_PERCENT = 20; // tamanho do pool em % da memória física
+
+    // marcas do formato comprimido
+    private static final int TAG_DATA = 0;  // DATA,-1,-1,p: segue p
+    private static final int TAG_EMPTY = 1; // ___,-1,-1,-1
+    private static final int TAG_RAW = 2;   // segue opc, ra, rb, p
+    private static final int TAG_RUN = 0x80; // 0x80 | n: repete a posição anterior n vezes (1..127)
+    private static final long EMPTY = Memory.pack(Opcode.___.ordinal(), -1, -1, -1);
+
+    private final LinkedHashMap<Long, byte[]> pool = new LinkedHashMap<>(); // (pid, página) → página comprimida, mais antiga primeiro
+    private final int pageSize;
+    private final long memoryBytes; // memória física em bytes (8 por posição), base do percentual
+    private long capacity;          // bytes comprimidos; 0 = desligado
+    private long used;
+
+    private long stores;     // páginas guardadas no pool
+    private long loads;      // faltas atendidas descomprimindo do pool
+    private long writebacks; // páginas antigas empurradas do pool para o disco
+    private long rejected;   // páginas que não comprimiram o bastante (foram direto ao disco)
+    private long rawBytes;   // tamanho original das páginas guardadas
+    private long zBytes;     // tamanho comprimido das páginas guardadas
+
+    public CompressedSwap(int memSize, int pageSize) {
+        this.pageSize = pageSize;
+        this.memoryBytes = memSize * 8L;
+        setPercent(DEFAULT_PERCENT);
+    }
+
+    /** Tamanho do pool em % da memória física; 0 desliga (páginas sujas vão direto ao disco). */
+    public void setPercent(int percent) {
+        capacity = memoryBytes * Math.max(0, Math.min(100, percent)) / 100;
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /** Página comprimida cabe no pool (esvaziado, se preciso) e compensa guardar. */
+    public boolean accepts(byte[] z) {
+        if (capacity > 0 && z.length < pageSize * 8 && z.length <= capacity) return true;
+        if (capacity > 0) rejected++;
+        return false;
+    }
+
+    public boolean hasRoom(byte[] z) {
+        return used + z.length <= capacity;
+    }
+
+    public void put(long key, byte[] z) {
+        byte[] old = pool.put(key, z);
+        if (old != null) used -= old.length;
+        used += z.length;
+        stores++;
+        rawBytes += pageSize * 8L;
+        zBytes += z.length;
+    }
+
+    public boolean contains(long key) {
+        return pool.containsKey(key);
+    }
+
+    /** Página descomprimida, sem tirar do pool (leitura do SO); null se não está no pool. */
+    public long[] peek(long key) {
+        byte[] z = pool.get(key);
+        return z == null ? null : decompress(z, pageSize);
+    }
+
+    /** Tira a página do pool para carregá-la num frame; null se não está no pool. */
+    public long[] load(long key) {
+        byte[] z = pool.remove(key);
+        if (z == null) return null;
+        used -= z.length;
+        loads++;
+        return decompress(z, pageSize);
+    }
+
+    /** Páginas do pool, da mais antiga (primeira candidata à gravação no disco) à mais nova. */
+    public Iterable<Long> keys() {
+        return pool.keySet();
+    }
+
+    /** Tira a página do pool para gravação no disco. */
+    public long[] evict(long key) {
+        byte[] z = pool.remove(key);
+        used -= z.length;
+        writebacks++;
+        return decompress(z, pageSize);
+    }
+
+    /** Descarta as páginas do processo (fim do processo). */
+    public void removeAll(int pid) {
+        Iterator<Map.Entry<Long, byte[]>> it = pool.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, byte[]> e = it.next();
+            if ((int) (e.getKey() >>> 32) == pid) {
+                used -= e.getValue().length;
+                it.remove();
+            }
+        }
+    }
+
+    // ============== COMPRESSÃO ==============
+
+    public static byte[] compress(long[] page) {
+        byte[] out = new byte[page.length * 9];
+        int n = 0;
+        for (int i = 0; i < page.length; i++) {
+            long cell = page[i];
+            if (i > 0 && cell == page[i - 1]) {
+                int run = 1;
+                while (run < 127 && i + run < page.length && page[i + run] == cell) run++;
+                out[n++] = (byte) (TAG_RUN | run);
+                i += run - 1;
+            } else if (cell == EMPTY) {
+                out[n++] = TAG_EMPTY;
+            } else if (Memory.opcOf(cell) == Opcode.DATA.ordinal() && Memory.raOf(cell) == -1 && Memory.rbOf(cell) == -1) {
+                out[n++] = TAG_DATA;
+                n = putVarint(out, n, Memory.pOf(cell));
+            } else {
+                out[n++] = TAG_RAW;
+                out[n++] = (byte) Memory.opcOf(cell);
+                out[n++] = (byte) Memory.raOf(cell);
+                out[n++] = (byte) Memory.rbOf(cell);
+                n = putVarint(out, n, Memory.pOf(cell));
+            }
+        }
+        byte[] z = new byte[n];
+        System.arraycopy(out, 0, z, 0, n);
+        return z;
+    }
+
+    public static long[] decompress(byte[] z, int pageSize) {
+        long[] page = new long[pageSize];
+        int[] pos = {0};
+        int i = 0;
+        while (pos[0] < z.length) {
+            int tag = z[pos[0]++] & 0xFF;
+            if ((tag & TAG_RUN) != 0) {
+                for (int run = tag & 0x7F; run > 0; run--, i++) page[i] = page[i - 1];
+            } else if (tag == TAG_EMPTY) {
+                page[i++] = EMPTY;
+            } else if (tag == TAG_DATA) {
+                page[i++] = Memory.packData(getVarint(z, pos));
+            } else {
+                int opc = z[pos[0]++] & 0xFF;
+                int ra = z[pos[0]++];
+                int rb = z[pos[0]++];
+                page[i++] = Memory.pack(opc, ra, rb, getVarint(z, pos));
+            }
+        }
+        return page;
+    }
+
+    // inteiro com sinal em zigzag + 7 bits por byte: valores pequenos (e -1) ocupam 1 byte
+    private static int putVarint(byte[] out, int n, int v) {
+        int zz = (v << 1) ^ (v >> 31);
+        while ((zz & ~0x7F) != 0) {
+            out[n++] = (byte) ((zz & 0x7F) | 0x80);
+            zz >>>= 7;
+        }
+        out[n++] = (byte) zz;
+        return n;
+    }
+
+    private static int getVarint(byte[] z, int[] pos) {
+        int zz = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = z[pos[0]++] & 0xFF;
+            zz |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        return (zz >>> 1) ^ -(zz & 1);
+    }
+
+    public long getStores() { return stores; }
+    public long getLoads() { return loads; }
+    public long getWritebacks() { return writebacks; }
+
+    @Override
+    public String toString() {
+        if (capacity == 0) return "Swap comprimido: desligado";
+        return String.format("Swap comprimido: %d páginas, %d de %d bytes | %d guardadas (%.1f:1) | " +
+                        "%d faltas atendidas do pool | %d gravadas no disco (LRU) | %d recusadas (sem ganho ou maiores que o pool)",
+                pool.size(), used, capacity, stores, zBytes == 0 ? 0.0 : (double) rawBytes / zBytes,
+                loads, writebacks, rejected);
+    }
+}
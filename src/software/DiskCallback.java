@@ -1,11 +1,12 @@
 package software;
 
 import hardware.Disk;
-import hardware.Word;
+import util.Tracer;
 
 /**
  * Implementa o listener do disco.
- * É notificada quando operações assíncronas de Page-In ou Page-Out terminam.
+ * É notificada quando operações assíncronas de Page-In ou Page-Out terminam
+ * e repassa ao {@link Pager}.
  */
 public class DiskCallback implements Disk.DiskListener {
 
@@ -16,29 +17,11 @@ public class DiskCallback implements Disk.DiskListener {
     }
 
     @Override
-    public void pageInComplete(PCB process, int pageNumber, int frameIndex, int diskSlot) {
-        System.out.printf(
-                "DISK: page-in concluído (pid=%d, pg=%d, frame=%d, slot=%d)\n",
-                process.pid, pageNumber, frameIndex, diskSlot
-        );
+    public void pageInComplete(PCB process, int pageNumber, int frameIndex, int diskSlot, long[] data) {
+        so.hw.tracer.event(Tracer.Event.PAGE_IN, -1, process.pid, process.pc, pageNumber, frameIndex, diskSlot);
 
-        // Recupera a página do programa
-        Word[] data = process.getProgramPage(pageNumber);
-
-        // Copia para a memória física
-        int physStart = frameIndex * so.hw.mem.getTamPg();
-        for (int i = 0; i < so.hw.mem.getTamPg(); i++) {
-            so.hw.mem.write(physStart + i, data[i]);
-        }
-
-        // Atualiza tabela de páginas
-        process.pageTable[pageNumber] = frameIndex;
-
-        // Desbloqueia o processo
-        process.state = PCB.ProcState.READY;
-        so.scheduler.addToReady(process);
-
-        so.getBlockedProcesses().remove(process.pid);
+        // Copia para a memória física, atualiza a tabela de páginas e desbloqueia o processo
+        so.getPager().pageInComplete(process, pageNumber, frameIndex, data);
     }
 
     /**
@@ -46,25 +29,22 @@ public class DiskCallback implements Disk.DiskListener {
      *
      * @param victimPid          identificador (PID) do processo cuja página foi gravada.
      * @param victimPageNumber   número da página virtual que foi enviada para o disco.
+     * @param frameIndex         frame que a página ocupava (entregue a quem esperava por ele).
      * @param diskSlot           índice do slot de disco utilizado; -1 se não houver espaço.
      */
     @Override
-    public void pageOutComplete(int victimPid, int victimPageNumber, int diskSlot) {
-        if (diskSlot == -1) {
+    public void pageOutComplete(int victimPid, int victimPageNumber, int frameIndex, int diskSlot) {
+        so.hw.tracer.event(Tracer.Event.PAGE_OUT, -1, victimPid, -1, victimPageNumber, frameIndex, diskSlot);
+
+        if (!so.getPager().pageOutComplete(victimPid, victimPageNumber, frameIndex, diskSlot)) {
             System.out.println("[SO] ERRO: Disco cheio! Falha ao salvar página " + victimPageNumber +
                     " do processo " + victimPid);
 
             PCB victim = so.getPCB(victimPid);
             if (victim != null) {
                 victim.state = PCB.ProcState.TERMINATED;
-                so.rm(victimPid); // remove o processo e libera memória
+                so.rm(victimPid); // remove o processo e libera memória (e acorda os núcleos)
             }
-
-            so.scheduler.scheduleNext(); // avança o escalonador
-            return;
         }
-
-        System.out.println("[DISK] Page-Out concluído para processo " + victimPid +
-                ", página " + victimPageNumber + ", slot " + diskSlot);
     }
 }
@@ -1,8 +1,7 @@
 package software;
 
+import hardware.CPU;
 import hardware.Interrupts;
-import hardware.Word;
-import menagers.MemoryManager;
 
 
 // ------- I N T E R R U P C O E S - rotinas de tratamento ------
@@ -14,24 +13,29 @@ public class InterruptHandling {
 	}
 
 	public void handle(Interrupts irpt) {
+		handle(so.hw.cpu, irpt);
+	}
+
+	// cpu = núcleo que gerou a interrupção
+	public void handle(CPU cpu, Interrupts irpt) {
 		switch (irpt) {
 			case intTimer:
-				handleTimer();
+				handleTimer(cpu);
 				break;
 			case intSysCallStop:
-				handleSysCallStop();
+				handleSysCallStop(cpu);
 				break;
 			case intEnderecoInvalido:
-				handleMemoryViolation();
+				handleMemoryViolation(cpu);
 				break;
 			case intOverflow:
-				handleOverflow();
+				handleOverflow(cpu);
 				break;
 			case intInstrucaoInvalida:
-				handleInvalidInstruction();
+				handleInvalidInstruction(cpu);
 				break;
 			case intPageFault:
-				handlePageFault();
+				handlePageFault(cpu);
 				break;
 			default:
 				System.out.println("Interrupção desconhecida: " + irpt);
@@ -39,107 +43,65 @@ public class InterruptHandling {
 		}
 	}
 	
-	private void handleTimer() {
+	private void handleTimer(CPU cpu) {
 		// logs de contexto ficam no Scheduler.onTimer()
-		so.scheduler.onTimer();
+		so.scheduler.onTimer(cpu.getId());
 	}
 	
-	private PCB resolveRunningOrCurrent() {
-		PCB running = so.scheduler.getRunning();
-		if (running == null && so.hw.cpu.getCurrentPCB() != null) {
-			running = so.hw.cpu.getCurrentPCB();
+	private PCB resolveRunningOrCurrent(CPU cpu) {
+		PCB running = so.scheduler.getRunning(cpu.getId());
+		if (running == null && cpu.getCurrentPCB() != null) {
+			running = cpu.getCurrentPCB();
 		}
 		return running;
 	}
 	
-	private void handleSysCallStop() {
-		PCB running = resolveRunningOrCurrent();
+	private void handleSysCallStop(CPU cpu) {
+		PCB running = resolveRunningOrCurrent(cpu);
 		if (running != null) {
 			System.out.println("STOP: Processo " + running.pid + " solicitou finalização");
 			running.state = PCB.ProcState.TERMINATED;
 			so.rm(running.pid);
-			so.scheduler.scheduleNext();
+			so.scheduler.scheduleNext(cpu.getId());
 		}
 	}
 	
-	private void handleMemoryViolation() {
-		PCB running = resolveRunningOrCurrent();
+	private void handleMemoryViolation(CPU cpu) {
+		PCB running = resolveRunningOrCurrent(cpu);
 		if (running != null) {
 			System.out.println("MEMORY_VIOLATION: Processo " + running.pid + " tentou acessar endereço inválido");
 			running.state = PCB.ProcState.TERMINATED;
 			so.rm(running.pid);
-			so.scheduler.scheduleNext();
+			so.scheduler.scheduleNext(cpu.getId());
 		}
 	}
 	
-	private void handleOverflow() {
-		PCB running = resolveRunningOrCurrent();
+	private void handleOverflow(CPU cpu) {
+		PCB running = resolveRunningOrCurrent(cpu);
 		if (running != null) {
 			System.out.println("OVERFLOW: Processo " + running.pid + " causou overflow aritmético");
 			running.state = PCB.ProcState.TERMINATED;
 			so.rm(running.pid);
-			so.scheduler.scheduleNext();
+			so.scheduler.scheduleNext(cpu.getId());
 		}
 	}
 	
-	private void handleInvalidInstruction() {
-		PCB running = resolveRunningOrCurrent();
+	private void handleInvalidInstruction(CPU cpu) {
+		PCB running = resolveRunningOrCurrent(cpu);
 		if (running != null) {
 			System.out.println("INVALID_INSTRUCTION: Processo " + running.pid + " tentou executar instrução inválida");
 			running.state = PCB.ProcState.TERMINATED;
 			so.rm(running.pid);
-			so.scheduler.scheduleNext();
+			so.scheduler.scheduleNext(cpu.getId());
 		}
 	}
 
-	private void handlePageFault() {
-		MemoryManager mm = so.getMemoryManager();
-		PCB running = resolveRunningOrCurrent();
+	// Paginação sob demanda: o Pager carrega a página do endereço que faltou
+	// (ou faz a cópia própria, na escrita em página compartilhada)
+	private void handlePageFault(CPU cpu) {
+		PCB running = resolveRunningOrCurrent(cpu);
 		if (running == null) return;
-
-		System.out.println("PAGE FAULT detectado no processo " + running.pid);
-
-		// Descobre qual página causou o fault
-		int logicalAddress = so.hw.cpu.getPc();
-		int pageNumber = logicalAddress / so.hw.mem.getTamPg();
-
-		// Tenta encontrar um frame livre
-		int frameIndex = mm.findFreeFrame();
-
-		// Se nenhum frame livre, precisamos desalocar uma página (Page-Out)
-		if (frameIndex < 0) {
-			int victimFrame = mm.findVictimFrame();
-
-			// Encontrar o processo dono da página vítima
-			PCB victim = so.findProcessByFrame(victimFrame);
-			if (victim == null) {
-				System.out.println("Erro: nenhum processo dono do frame vítima!");
-				return;
-			}
-
-			int victimPage = victim.getPageToEvict();
-
-			// Ler os dados da página vítima da memória
-			Word[] pageData = so.hw.mem.readFrame(victimFrame);
-
-			// Solicitar ao disco para gravar essa página
-			int oldSlot = victim.getDiskSlotForPage(victimPage);
-			so.getDisk().requestPageOut(victim.pid, victimPage, pageData, oldSlot);
-
-			System.out.println("Page-Out iniciado para processo " + victim.pid + ", página " + victimPage);
-			return; // o callback (DiskCallback) continuará o processo depois
-		}
-
-		//Se há frame livre, carregar a página que faltava (Page-In)
-		int diskSlot = running.getDiskSlotForPage(pageNumber);
-		so.getDisk().requestPageIn(running, pageNumber, frameIndex, diskSlot);
-
-		// Bloqueia o processo enquanto o disco faz o Page-In
-		running.state = PCB.ProcState.BLOCKED;
-		so.getBlockedProcesses().put(running.pid, running);
-
-		// Força o escalonador a buscar outro processo
-		so.scheduler.scheduleNext();
+		so.getPager().pageFault(cpu, running, cpu.getFaultAddress(), cpu.isFaultWrite());
 	}
 
 
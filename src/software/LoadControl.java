@@ -0,0 +1,185 @@
+package software;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Controle de carga pelo modelo de working set.
+ *
+ * O working set de um processo é o conjunto de páginas que ele acessou nas
+ * últimas {@code window} instruções do seu próprio tempo virtual (instruções
+ * executadas por ele). A amostra é feita quando o processo sai da CPU (fim
+ * da fatia ou page fault): páginas com o bit de acesso do working set ligado
+ * recebem o tempo atual e o bit é zerado.
+ *
+ * Se a soma dos working sets dos processos ativos passa do número de frames,
+ * o processo ativo mais novo que está na fila READY é suspenso: sai do
+ * escalonador e devolve os frames (páginas sujas vão para o disco). Quando
+ * um processo termina ou os working sets encolhem, o suspenso mais antigo
+ * volta, se o working set dele couber. Processo novo só é admitido direto se
+ * couber; senão já nasce suspenso. Um processo ativo nunca é suspenso, para
+ * sempre haver progresso.
+ *
+ * Ordem dos locks: SO.lock → lock do controle → vmLock → locks do escalonador.
+ */
+public class LoadControl {
+    public static final int DEFAULT_WINDOW = 200; // instruções de tempo virtual do processo
+    private static final int MIN_WORKING_SET = 2;  // código + dados
+
+    private final SO so;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashSet<PCB> active = new LinkedHashSet<>(); // em ordem de admissão
+    private final ArrayDeque<PCB> suspended = new ArrayDeque<>();
+    private int window = DEFAULT_WINDOW;
+
+    private long suspensions;
+    private long resumes;
+    private long deferredAdmissions;
+
+    public LoadControl(SO so) {
+        this.so = so;
+    }
+
+    /** Janela do working set, em instruções; 0 desliga o controle de carga. */
+    public void setWindow(int window) {
+        this.window = Math.max(0, window);
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /** Admite o processo recém-criado: fila READY se couber, senão suspenso. */
+    public void admit(PCB pcb) {
+        pcb.workingSet = Math.min(pcb.numPages, MIN_WORKING_SET);
+        lock.lock();
+        try {
+            if (window == 0 || active.isEmpty() || demand() + workingSet(pcb) <= frames()) {
+                active.add(pcb);
+                so.scheduler.addToReady(pcb);
+                return;
+            }
+            deferredAdmissions++;
+            pcb.state = PCB.ProcState.SUSPENDED;
+            suspended.add(pcb);
+            System.out.println("Controle de carga: processo " + pcb.pid + " admitido suspenso (memória comprometida)");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Processo saiu da CPU depois de {@code executed} instruções: avança o
+     * tempo virtual dele e recalcula o working set. Não decide nada (pode ser
+     * chamado com o vmLock, no page fault).
+     */
+    public void sample(PCB pcb, int executed) {
+        PageTable pt = pcb.pageTable;
+        pcb.virtualTime += executed;
+        if (pt != null && window > 0) {
+            pcb.workingSet = pt.sampleWorkingSet(pcb.virtualTime, window);
+        }
+    }
+
+    /** Fim de fatia: suspende ou retoma processos conforme a demanda. */
+    public void balance() {
+        if (window == 0) return;
+        lock.lock();
+        try {
+            int frames = frames();
+            int demand = demand();
+            if (demand > frames) {
+                List<PCB> newestFirst = new ArrayList<>(active);
+                for (int i = newestFirst.size() - 1; i >= 0 && demand > frames && active.size() > 1; i--) {
+                    PCB p = newestFirst.get(i);
+                    if (p.state == PCB.ProcState.READY && so.scheduler.dequeue(p)) {
+                        suspend(p);
+                        demand -= workingSet(p);
+                    }
+                }
+                return;
+            }
+            resumeFitting(demand, frames);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Processo terminou (ou foi removido): a memória dele pode trazer um suspenso de volta. */
+    public void exit(PCB pcb) {
+        lock.lock();
+        try {
+            active.remove(pcb);
+            suspended.remove(pcb);
+            resumeFitting(demand(), frames());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void suspend(PCB p) {
+        active.remove(p);
+        p.state = PCB.ProcState.SUSPENDED;
+        suspended.add(p);
+        suspensions++;
+        int freed = so.getPager().swapOut(p);
+        System.out.println("Controle de carga: processo " + p.pid + " suspenso (working set " + p.workingSet +
+                ", " + freed + " frames devolvidos)");
+    }
+
+    // retoma os suspensos mais antigos enquanto couberem (ou se não há nenhum ativo)
+    private void resumeFitting(int demand, int frames) {
+        while (!suspended.isEmpty()) {
+            PCB p = suspended.peekFirst();
+            if (!active.isEmpty() && demand + workingSet(p) > frames) return;
+            suspended.pollFirst();
+            active.add(p);
+            demand += workingSet(p);
+            resumes++;
+            System.out.println("Controle de carga: processo " + p.pid + " retomado");
+            so.scheduler.addToReady(p);
+        }
+    }
+
+    private int demand() {
+        int sum = 0;
+        for (PCB p : active) sum += workingSet(p);
+        return sum;
+    }
+
+    private int workingSet(PCB p) {
+        return Math.max(p.workingSet, Math.min(p.numPages, MIN_WORKING_SET));
+    }
+
+    private int frames() {
+        return so.getMemoryManager().getFrameQuantity();
+    }
+
+    public int getSuspendedCount() {
+        lock.lock();
+        try {
+            return suspended.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSuspensions() { return suspensions; }
+    public long getResumes() { return resumes; }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            if (window == 0) return "Controle de carga: desligado";
+            return String.format("Controle de carga: janela %d instruções | %d ativos (working sets somam %d de %d frames) | " +
+                            "%d suspensos | %d suspensões, %d retomadas, %d admissões adiadas",
+                    window, active.size(), demand(), frames(), suspended.size(), suspensions, resumes, deferredAdmissions);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
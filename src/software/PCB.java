@@ -1,9 +1,10 @@
 package software;
 
+import hardware.Memory;
+import hardware.Profiler;
 import hardware.Word;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * PCB - Bloco de Controle de Processo (versão com suporte a obter páginas do programa)
@@ -15,9 +16,19 @@ public class PCB {
     public int pc;
     public int[] reg;
     public boolean trace;
+    public Profiler.PcProfile profile; // contadores do profiler (criados na primeira instrução contada)
+    public boolean verified;           // aprovado pelo Verifier: alvos constantes dispensam checagem
+    public boolean nonPreemptive;      // exec (modo debug): despachado sem TIMER (ver CPU.EXEC_SLICE)
+    public int waitingPage = -1;       // BLOCKED em page fault: página esperada
+    public int lastFaultPage = -1;     // página da falta anterior (pode ser o outro operando da instrução)
+    public int readAheadWindow;        // páginas buscadas além da falta (0 = acesso não sequencial)
+    public int readAheadNext = -1;     // próxima falta esperada se o acesso for sequencial
+    public int readAheadWasted;        // páginas antecipadas descartadas sem uso desde a última falta
+    public long virtualTime;           // instruções já executadas pelo processo (relógio do working set)
+    public int workingSet;             // páginas acessadas na janela do working set (última amostra)
 
     // Gerenciamento de memória
-    public int[] pageTable;
+    public PageTable pageTable;   // frame, slot no disco e bits P/R/D de cada página
     public int numPages;
     public int tamanhoEmPalavras;
     public int inicio;
@@ -50,7 +61,7 @@ public class PCB {
 
         // Calcular número de páginas necessárias
         this.numPages = (int) Math.ceil((double) tamanhoEmPalavras / tamPg);
-        this.pageTable = new int[numPages];
+        this.pageTable = new PageTable(numPages);
 
         // Inicializar novos campos
         this.programImage = null;
@@ -69,31 +80,30 @@ public class PCB {
         // recalcula numPages caso necessário
         this.numPages = (int) Math.ceil((double) (tamanhoEmPalavras) / pageSize);
         // garante que pageTable existe
-        if (this.pageTable == null || this.pageTable.length != this.numPages) {
-            this.pageTable = new int[this.numPages];
+        if (this.pageTable == null || this.pageTable.size() != this.numPages) {
+            this.pageTable = new PageTable(this.numPages);
         }
     }
 
     /**
-     * Retorna uma cópia da página `pageNumber` da imagem do programa.
-     * Se a página ultrapassar o fim da imagem, preenche com Word(Opcode.DATA,...).
+     * Retorna uma cópia da página `pageNumber` da imagem do programa, empacotada
+     * no formato de {@link Memory}.
+     * Se a página ultrapassar o fim da imagem, preenche com (Opcode.DATA, -1, -1, -1).
      *
      * @param pageNumber número da página (0..numPages-1)
-     * @return Word[] com tamanho pageSize (nunca retorna null)
+     * @return long[] com tamanho pageSize (nunca retorna null)
      */
-    public Word[] getProgramPage(int pageNumber) {
-        Word[] page = new Word[this.pageSize];
+    public long[] getProgramPage(int pageNumber) {
+        long[] page = new long[this.pageSize];
         // Preenche com DATA por padrão
-        for (int i = 0; i < page.length; i++) {
-            page[i] = new Word(hardware.Opcode.DATA, -1, -1, -1);
-        }
+        Arrays.fill(page, Memory.packData(-1));
         if (programImage == null) return page;
 
         int start = pageNumber * pageSize;
         for (int i = 0; i < pageSize; i++) {
             int idx = start + i;
             if (idx >= 0 && idx < programImage.length && programImage[idx] != null) {
-                page[i] = programImage[idx];
+                page[i] = Memory.pack(programImage[idx]);
             }
         }
         return page;
@@ -111,8 +121,12 @@ public class PCB {
         sb.append(String.format("Memória: %d palavras, %d páginas\n", tamanhoEmPalavras, numPages));
         sb.append("Tabela de páginas: ");
         if (pageTable != null) {
-            for (int i = 0; i < pageTable.length; i++) {
-                sb.append(String.format("pg%d→frame%d ", i, pageTable[i]));
+            for (int i = 0; i < pageTable.size(); i++) {
+                if (pageTable.isPresent(i)) {
+                    sb.append(String.format("pg%d→frame%d ", i, pageTable.getFrame(i)));
+                } else {
+                    sb.append(String.format("pg%d→ausente ", i));
+                }
             }
         }
         return sb.toString();
@@ -125,14 +139,11 @@ public class PCB {
      * @return número da página vítima, ou -1 se não houver páginas.
      */
     public int getPageToEvict() {
-        if (pageTable == null || pageTable.length == 0) return -1;
+        if (pageTable == null || pageTable.size() == 0) return -1;
 
         return 0;
     }
 
-    // Mapeia número da página lógica → slot no disco (-1 se ainda não foi salva)
-    public Map<Integer, Integer> diskSlots = new HashMap<>();
-
     /**
      * Retorna o slot do disco associado a uma página.
      *
@@ -140,7 +151,8 @@ public class PCB {
      * @return índice do slot no disco, ou -1 se a página ainda não está armazenada
      */
     public int getDiskSlotForPage(int pageNumber) {
-        return diskSlots.getOrDefault(pageNumber, -1);
+        if (pageTable == null || pageNumber < 0 || pageNumber >= pageTable.size()) return -1;
+        return pageTable.getDiskSlot(pageNumber);
     }
 
     /**
@@ -150,12 +162,12 @@ public class PCB {
      * @param slot índice do slot no disco
      */
     public void setDiskSlotForPage(int pageNumber, int slot) {
-        diskSlots.put(pageNumber, slot);
+        if (pageTable != null) pageTable.setDiskSlot(pageNumber, slot);
     }
 
 
 
     public enum ProcState {
-        NEW, READY, RUNNING, BLOCKED, TERMINATED
+        NEW, READY, RUNNING, BLOCKED, SUSPENDED, TERMINATED
     }
 }
@@ -0,0 +1,126 @@
+package software;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * União de páginas de conteúdo igual (como o KSM do Linux).
+ *
+ * Varre os frames da memória aos poucos: a cada interrupção de tempo examina
+ * {@code pagesToScan} frames a partir de onde parou. O conteúdo de cada frame
+ * candidato vira um hash; se outro frame da mesma passada tem o mesmo hash e
+ * o conteúdo confere posição a posição, as páginas do frame examinado passam
+ * a mapear o outro, compartilhado e só de leitura (escrita gera
+ * copy-on-write, como no texto compartilhado), e o frame volta ao GM.
+ *
+ * Como no KSM, só é candidato o frame cujo hash não mudou desde a passada
+ * anterior: páginas escritas o tempo todo seriam unidas e logo copiadas de
+ * volta. Página suja pode ser unida; se ela sai do frame unido (vítima,
+ * suspensão ou cópia na escrita sem frame livre), o conteúdo vai para o swap
+ * comprimido ou para o disco. O índice de hashes é refeito a cada passada.
+ *
+ * A varredura só lê (com o vmLock); a união troca o frame de páginas de
+ * processos que podem estar em execução em outros núcleos e por isso é feita
+ * com os núcleos parados entre instruções ({@link Pager#withCoresStopped}).
+ */
+public class PageMerger {
+    public static final int DEFAULT_PAGES_TO_SCAN = 4; // frames examinados por interrupção de tempo
+
+    private final SO so;
+    private final Map<Long, Integer> index = new HashMap<>(); // hash do conteúdo → frame visto nesta passada
+    private final long[] lastHash; // hash de cada frame na passada anterior
+    private int pagesToScan = DEFAULT_PAGES_TO_SCAN;
+    private int cursor;
+
+    private long scanned; // frames examinados
+    private long passes;  // passadas completas pela memória
+    private long merged;  // frames devolvidos ao GM por união
+
+    public PageMerger(SO so) {
+        this.so = so;
+        this.lastHash = new long[so.getMemoryManager().getFrameQuantity()];
+    }
+
+    /** Frames examinados por interrupção de tempo; 0 desliga a união. */
+    public void setPagesToScan(int pagesToScan) {
+        this.pagesToScan = Math.max(0, pagesToScan);
+    }
+
+    public int getPagesToScan() {
+        return pagesToScan;
+    }
+
+    /**
+     * Interrupção de tempo: examina os próximos frames (chamado fora dos locks
+     * do escalonador). Os pares encontrados são unidos depois, com os núcleos
+     * parados: as páginas podem ser de processos em execução em outros núcleos.
+     */
+    public void tick() {
+        if (pagesToScan == 0) return;
+        Pager pager = so.getPager();
+        List<long[]> found = new ArrayList<>(); // {frame mantido, frame duplicado, hash}
+        pager.withVmLock(() -> {
+            int frames = so.getMemoryManager().getFrameQuantity();
+            for (int i = 0; i < pagesToScan; i++) {
+                scan(cursor, found);
+                if (++cursor == frames) {
+                    cursor = 0;
+                    passes++;
+                    index.clear();
+                }
+            }
+        });
+        if (found.isEmpty()) return;
+        pager.withCoresStopped(() -> {
+            for (long[] pair : found) {
+                int keeper = (int) pair[0];
+                int dup = (int) pair[1];
+                // revalida: entre as duas fases um frame pode ter mudado ou saído da memória
+                if (pager.isMergeable(keeper) && pager.isMergeable(dup)
+                        && pager.merge(keeper, dup, so.hw.mem.readFrame(dup))) {
+                    merged++;
+                } else {
+                    index.put(pair[2], dup); // o frame antigo não serve: este fica no índice
+                }
+            }
+        });
+    }
+
+    private void scan(int frame, List<long[]> found) {
+        Pager pager = so.getPager();
+        scanned++;
+        if (!pager.isMergeable(frame)) return;
+        long[] data = so.hw.mem.readFrame(frame);
+        long hash = hash(data);
+        long previous = lastHash[frame];
+        lastHash[frame] = hash;
+        if (hash != previous && !pager.isShared(frame)) return; // mudou desde a passada anterior: volátil
+        Integer other = index.get(hash);
+        if (other == null || other == frame || !pager.isMergeable(other)) {
+            index.put(hash, frame);
+            return;
+        }
+        found.add(new long[]{other, frame, hash});
+    }
+
+    private static long hash(long[] data) {
+        long h = 0xcbf29ce484222325L;
+        for (long cell : data) {
+            h = (h ^ cell) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    public long getMerged() { return merged; }
+
+    @Override
+    public String toString() {
+        if (pagesToScan == 0) return "União de páginas iguais: desligada";
+        int[] shared = so.getPager().mergedStats();
+        return String.format("União de páginas iguais: %d frames por interrupção | %d examinados (%d passadas) | " +
+                        "%d frames devolvidos ao GM | %d frames unidos mapeados por %d páginas",
+                pagesToScan, scanned, passes, merged, shared[0], shared[1]);
+    }
+}
@@ -0,0 +1,84 @@
+package software;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recuperação de frames em segundo plano (como o kswapd do Linux).
+ *
+ * Quando os frames livres do GM caem abaixo da marca baixa, o daemon é
+ * acordado e tira vítimas da memória (pela política de substituição do GM)
+ * até a marca alta: limpas são descartadas, sujas vão para o swap comprimido
+ * ou são gravadas no disco. Assim a falta seguinte quase sempre encontra um
+ * frame livre e não espera um page-out; só sem frame livre o {@link Pager}
+ * ainda escolhe a vítima na própria falta (recuperação direta).
+ *
+ * As marcas são um percentual dos frames: a baixa é o percentual e a alta, o
+ * dobro. O daemon roda numa thread própria; no modo sem threads
+ * ({@link Simulation}) vira um evento no relógio virtual, logo depois da falta
+ * que o acordou.
+ */
+public class PageReclaimer {
+    public static final int DEFAULT_PERCENT = 5; // marca baixa em % dos frames; a alta é o dobro
+
+    private final SO so;
+    private final AtomicBoolean pending = new AtomicBoolean(); // já acordado, ainda não rodou
+    private Executor executor;
+    private int low;  // frames livres abaixo dos quais o daemon acorda
+    private int high; // frames livres em que ele volta a dormir
+
+    private long wakeups;   // vezes que o daemon rodou
+    private long reclaimed; // frames liberados (ou a caminho do GM, em gravação)
+
+    public PageReclaimer(SO so) {
+        this.so = so;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "kswapd");
+            t.setDaemon(true);
+            return t;
+        });
+        setPercent(DEFAULT_PERCENT);
+    }
+
+    /** Marca baixa em % dos frames (a alta é o dobro); 0 desliga o daemon. */
+    public void setPercent(int percent) {
+        int frames = so.getMemoryManager().getFrameQuantity();
+        percent = Math.max(0, Math.min(50, percent));
+        low = percent == 0 ? 0 : Math.max(1, frames * percent / 100);
+        high = percent == 0 ? 0 : Math.min(frames, Math.max(low + 1, frames * 2 * percent / 100));
+    }
+
+    /** Onde o daemon roda (ex.: relógio virtual do modo sem threads). */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getLowWatermark() { return low; }
+    public int getHighWatermark() { return high; }
+
+    /** Acorda o daemon se os frames livres caíram abaixo da marca baixa (chamado fora do vmLock). */
+    public void wakeIfLow() {
+        if (low == 0 || so.getMemoryManager().getFreeCount() >= low) return;
+        if (pending.compareAndSet(false, true)) {
+            executor.execute(this::run);
+        }
+    }
+
+    private void run() {
+        pending.set(false);
+        wakeups++;
+        reclaimed += so.getPager().reclaim(high);
+    }
+
+    public long getWakeups() { return wakeups; }
+    public long getReclaimed() { return reclaimed; }
+
+    @Override
+    public String toString() {
+        if (low == 0) return "Recuperação em segundo plano: desligada";
+        return String.format("Recuperação em segundo plano: marcas %d/%d frames livres | %d despertares, %d frames liberados | " +
+                        "%d faltas sem frame livre (vítima escolhida na falta)",
+                low, high, wakeups, reclaimed, so.getPager().getDirectReclaims());
+    }
+}
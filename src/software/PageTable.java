@@ -0,0 +1,164 @@
+package software;
+
+import java.util.Arrays;
+
+/**
+ * Tabela de páginas de um processo, guardada como estrutura de vetores:
+ * um vetor por campo (frame, slot no disco, bits, último uso) em vez de um
+ * objeto por página.
+ *
+ * Bits por página ({@code flags}):
+ * - {@link #PRESENT}: a página está em memória, no frame {@code frames[p]};
+ * - {@link #REFERENCED}: a página foi acessada (busca, leitura ou escrita)
+ *   desde a última vez que o bit foi limpo;
+ * - {@link #DIRTY}: a página foi escrita desde que foi carregada;
+ * - {@link #PAGING_OUT}: a página (ausente) está sendo gravada no disco;
+ * - {@link #SHARED}: o frame é compartilhado com outros processos do mesmo
+ *   programa, ou com páginas de conteúdo igual ({@link PageMerger}), e é só
+ *   de leitura; escrita gera page fault (copy-on-write);
+ * - {@link #PRIVATE}: a próxima carga da página (ausente) deve ser cópia
+ *   própria, não o frame compartilhado (falta de escrita);
+ * - {@link #PREFETCHED}: a página veio por leitura antecipada e ainda não se
+ *   sabe se foi usada;
+ * - {@link #WS_REFERENCED}: acessada desde a última amostra do working set
+ *   (independente do bit R, que a política de substituição zera).
+ *
+ * A CPU liga REFERENCED/DIRTY a cada acesso ({@link #touch}); o SO liga e
+ * desliga PRESENT no page-in/page-out.
+ */
+public class PageTable {
+    public static final int PRESENT = 1;
+    public static final int REFERENCED = 2;
+    public static final int DIRTY = 4;
+    public static final int PAGING_OUT = 8;
+    public static final int SHARED = 16;
+    public static final int PRIVATE = 32;
+    public static final int PREFETCHED = 64;
+    public static final int WS_REFERENCED = 128;
+
+    private final int[] frames;    // frame físico (-1 = nenhum)
+    private final int[] diskSlots; // slot no disco (-1 = página nunca gravada)
+    private final byte[] flags;    // PRESENT | REFERENCED | DIRTY | PAGING_OUT | SHARED | PRIVATE | PREFETCHED | WS_REFERENCED
+    private final long[] lastUse;  // tempo virtual do processo no último acesso amostrado (-1 = nunca)
+
+    /** Cria uma tabela com {@code numPages} páginas, todas ausentes. */
+    public PageTable(int numPages) {
+        this.frames = new int[numPages];
+        this.diskSlots = new int[numPages];
+        this.flags = new byte[numPages];
+        this.lastUse = new long[numPages];
+        Arrays.fill(frames, -1);
+        Arrays.fill(diskSlots, -1);
+        Arrays.fill(lastUse, -1);
+    }
+
+    public int size() {
+        return frames.length;
+    }
+
+    public int getFrame(int page) {
+        return frames[page];
+    }
+
+    public boolean isPresent(int page) {
+        return (flags[page] & PRESENT) != 0;
+    }
+
+    public boolean isReferenced(int page) {
+        return (flags[page] & REFERENCED) != 0;
+    }
+
+    public boolean isDirty(int page) {
+        return (flags[page] & DIRTY) != 0;
+    }
+
+    public int getFlags(int page) {
+        return flags[page];
+    }
+
+    /** Página carregada no frame (page-in): presente, bits de uso zerados. */
+    public void map(int page, int frame) {
+        frames[page] = frame;
+        flags[page] = PRESENT;
+    }
+
+    /** Esquece o frame da página (page-out: o frame deixa de ser deste processo). */
+    public void release(int page) {
+        frames[page] = -1;
+        flags[page] = 0;
+    }
+
+    /** Marca um acesso à página: {@code bits} = REFERENCED ou REFERENCED|DIRTY. */
+    public void touch(int page, int bits) {
+        flags[page] |= bits | WS_REFERENCED;
+    }
+
+    /**
+     * Amostra do working set no tempo virtual {@code now}: páginas acessadas
+     * desde a amostra anterior passam a ter último uso {@code now}.
+     *
+     * @return páginas com último uso dentro das últimas {@code window} instruções
+     */
+    public int sampleWorkingSet(long now, long window) {
+        int ws = 0;
+        for (int p = 0; p < flags.length; p++) {
+            if ((flags[p] & WS_REFERENCED) != 0) {
+                flags[p] &= ~WS_REFERENCED;
+                lastUse[p] = now;
+            }
+            if (lastUse[p] >= 0 && now - lastUse[p] <= window) ws++;
+        }
+        return ws;
+    }
+
+    public void clearReferenced(int page) {
+        flags[page] &= ~REFERENCED;
+    }
+
+    public boolean isPagingOut(int page) {
+        return (flags[page] & PAGING_OUT) != 0;
+    }
+
+    public void setPagingOut(int page, boolean on) {
+        if (on) flags[page] |= PAGING_OUT; else flags[page] &= ~PAGING_OUT;
+    }
+
+    public boolean isShared(int page) {
+        return (flags[page] & SHARED) != 0;
+    }
+
+    public void setShared(int page, boolean on) {
+        if (on) flags[page] |= SHARED; else flags[page] &= ~SHARED;
+    }
+
+    public boolean isPrivate(int page) {
+        return (flags[page] & PRIVATE) != 0;
+    }
+
+    public void setPrivate(int page, boolean on) {
+        if (on) flags[page] |= PRIVATE; else flags[page] &= ~PRIVATE;
+    }
+
+    public boolean isPrefetched(int page) {
+        return (flags[page] & PREFETCHED) != 0;
+    }
+
+    public void setPrefetched(int page, boolean on) {
+        if (on) flags[page] |= PREFETCHED; else flags[page] &= ~PREFETCHED;
+    }
+
+    public int getDiskSlot(int page) {
+        return diskSlots[page];
+    }
+
+    public void setDiskSlot(int page, int slot) {
+        diskSlots[page] = slot;
+    }
+
+    /** Bits da página em texto curto: P (presente), R (referenciada), D (suja), S no fim se compartilhada. */
+    public String flagsString(int page) {
+        int f = flags[page];
+        return ((f & PRESENT) != 0 ? "P" : "-") + ((f & REFERENCED) != 0 ? "R" : "-") + ((f & DIRTY) != 0 ? "D" : "-")
+                + ((f & SHARED) != 0 ? "S" : "");
+    }
+}
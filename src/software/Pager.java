@@ -0,0 +1,1100 @@
+package software;
+
+import hardware.CPU;
+import hardware.Memory;
+import hardware.Word;
+import menagers.MemoryManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Paginação sob demanda: trata os page faults e o término dos IOs de página.
+ *
+ * O processo começa sem nenhuma página residente. No page fault a CPU informa
+ * o endereço lógico exato que faltou; a instrução não completa e é repetida
+ * quando a página estiver presente.
+ * - página nunca gravada no disco (primeira carga, ou descartada limpa): o
+ *   frame é preenchido na hora a partir da imagem do programa, sem IO;
+ * - página com slot no disco: page-in assíncrono, processo BLOCKED até o fim;
+ * - sem frame livre: a política do GM escolhe a vítima. Vítima suja é gravada
+ *   no disco (page-out) e o frame fica reservado para quem sofreu a falta,
+ *   que é atendido quando a gravação termina. Vítima limpa é descartada sem
+ *   IO: a cópia no slot (ou na imagem do programa) ainda vale, e o frame é
+ *   entregue na hora. Se todos os frames estão em IO, o processo espera o
+ *   próximo IO terminar e repete a instrução.
+ *
+ * Páginas vindas da imagem são compartilhadas entre os processos do mesmo
+ * programa: a primeira carga registra o frame no cache de texto e as faltas
+ * seguintes na mesma página só mapeiam esse frame (contagem de referências no
+ * GM). O frame compartilhado é só de leitura: a escrita gera page fault e o
+ * processo recebe uma cópia própria (copy-on-write) do frame compartilhado,
+ * que nunca é escrito (sem frame livre, a cópia vem do slot ou da imagem,
+ * de conteúdo igual). Se só resta um usuário, o frame vira dele sem cópia.
+ * O {@link PageMerger} usa o mesmo mecanismo para frames de conteúdo igual,
+ * de qualquer programa e página; aí cada usuário mapeia o frame na sua
+ * própria página lógica.
+ *
+ * Leitura antecipada: em page-in do disco, se a falta continua a sequência da
+ * anterior, as páginas seguintes que estão no disco vão junto, para frames
+ * livres, em uma só operação. A janela dobra a cada falta sequencial (até
+ * {@link #MAX_READ_AHEAD}), cai pela metade se alguma página antecipada foi
+ * descartada sem uso e zera quando o acesso deixa de ser sequencial.
+ *
+ * Swap comprimido: vítima suja (no page-out ou na suspensão) vai primeiro
+ * para o {@link CompressedSwap}, em RAM e sem IO; o frame é entregue na hora e
+ * a falta seguinte na página descomprime direto no frame. Só quando o pool
+ * enche as páginas mais antigas dele são gravadas no disco.
+ *
+ * Recuperação em segundo plano: abaixo da marca baixa de frames livres, o
+ * {@link PageReclaimer} tira vítimas da memória até a marca alta, para a
+ * falta encontrar frame livre sem esperar page-out.
+ *
+ * Tabelas de páginas, GM e as faltas pendentes mudam sempre sob o
+ * {@code vmLock}, usado pelos núcleos e pela thread do disco. Ordem dos
+ * locks: SO.lock → travas de execução das CPUs → vmLock → locks do
+ * escalonador (ver {@link #withCoresStopped}).
+ */
+public class Pager {
+    private final SO so;
+    private final ReentrantLock vmLock = new ReentrantLock();
+    private final Map<Integer, PCB> frameWaiters = new HashMap<>(); // frame em page-out → processo que vai recebê-lo
+    private final Map<Long, long[]> writeBack = new HashMap<>();    // (pid, página) em page-out → dados em gravação
+    private final List<PCB> memoryWaiters = new ArrayList<>();      // sem frame nem vítima: esperam algum IO terminar
+    private final Map<Long, Integer> prefetching = new HashMap<>();  // (pid, página) em leitura antecipada → frame
+    private final Map<Long, Integer> readingIn = new HashMap<>();    // (pid, página) da falta em page-in → frame
+    private final CompressedSwap zswap;
+    private int freeing; // frames em page-out que voltam ao GM no fim da gravação (suspensão e recuperação)
+    private PCB tokenHolder; // ficha de swap: as páginas da instrução dele não são vítimas das faltas dos outros
+    private int tokenPc;     // instrução em que ele estava ao receber a ficha
+    private boolean tokenRetry; // o dono da ficha foi acordado sozinho: os outros esperam ele repetir a falta
+
+    public static final int MAX_READ_AHEAD = 8;
+
+    // Frame só de leitura mapeado por vários (processo, página): uma página da
+    // imagem (cache de texto) ou páginas de conteúdo igual unidas pelo PageMerger
+    private static final class SharedPage {
+        final Word[] image; // null: frame unido por conteúdo, fora do cache de texto
+        final int page;     // página na imagem
+        final int frame;
+        final List<PCB> sharers = new ArrayList<>();
+        final List<Integer> pages = new ArrayList<>(); // pages[i]: página lógica em sharers[i]
+
+        SharedPage(Word[] image, int page, int frame) {
+            this.image = image;
+            this.page = page;
+            this.frame = frame;
+        }
+
+        void add(PCB pcb, int pg) {
+            sharers.add(pcb);
+            pages.add(pg);
+        }
+
+        void remove(PCB pcb, int pg) {
+            for (int i = 0; i < sharers.size(); i++) {
+                if (sharers.get(i) == pcb && pages.get(i) == pg) {
+                    sharers.remove(i);
+                    pages.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    private final Map<Word[], SharedPage[]> textCache = new IdentityHashMap<>(); // imagem → página → frame
+    private final Map<Integer, SharedPage> sharedFrames = new HashMap<>();
+
+    private long minorFaults; // atendidas da imagem, sem IO
+    private long majorFaults; // page-in do disco
+    private long pageOuts;    // vítimas sujas gravadas no disco
+    private long cleanDrops;  // vítimas limpas descartadas (gravações evitadas)
+    private long sharedHits;  // faltas atendidas mapeando um frame compartilhado
+    private long cowCopies;   // escritas em frame compartilhado que geraram cópia própria
+    private long prefetched;     // páginas lidas antecipadamente
+    private long prefetchHits;   // antecipadas que foram usadas
+    private long prefetchLate;   // faltas em página antecipada ainda em leitura (também acerto)
+    private long prefetchWasted; // antecipadas descartadas sem uso
+    private long directReclaims; // faltas sem frame livre: vítima escolhida na própria falta
+
+    public Pager(SO so) {
+        this.so = so;
+        this.zswap = new CompressedSwap(so.hw.mem.getTamMem(), so.hw.mem.getTamPg());
+    }
+
+    public CompressedSwap getCompressedSwap() {
+        return zswap;
+    }
+
+    /**
+     * Page fault no acesso a {@code logicalAddress} pelo processo em execução
+     * no núcleo {@code cpu}: página ausente, ou escrita ({@code write}) em
+     * página compartilhada. Sem frame livre, a vítima pode ser página de
+     * processo em execução em outro núcleo: a falta é tratada com os núcleos
+     * parados ({@link #withCoresStopped}).
+     */
+    public void pageFault(CPU cpu, PCB pcb, int logicalAddress, boolean write) {
+        int page = logicalAddress / so.hw.mem.getTamPg();
+        boolean[] handled = {false};
+        withVmLock(() -> {
+            handled[0] = handleFault(cpu, pcb, page, write, false);
+            if (handled[0]) pcb.lastFaultPage = page;
+        });
+        if (!handled[0]) {
+            withCoresStopped(() -> {
+                handleFault(cpu, pcb, page, write, true);
+                pcb.lastFaultPage = page;
+            });
+        }
+        so.getPageReclaimer().wakeIfLow();
+    }
+
+    /**
+     * @param stopped núcleos parados: pode tirar página de outro processo
+     * @return false se precisa de vítima e os núcleos não estão parados (nada mudou)
+     */
+    private boolean handleFault(CPU cpu, PCB pcb, int page, boolean write, boolean stopped) {
+        MemoryManager mm = so.getMemoryManager();
+        PageTable pt = pcb.pageTable;
+        if (pt == null || page < 0 || page >= pt.size()) {
+            return true; // processo removido: a instrução é repetida e o núcleo troca de processo
+        }
+        boolean needsFrame = !pt.isPresent(page) || write && pt.isShared(page);
+        if (needsFrame && !stopped && mm.getFreeCount() == 0) {
+            return false; // só há frame por substituição (frames só mudam com o vmLock)
+        }
+        if (pt.isPresent(page)) {
+            if (write && pt.isShared(page)) {
+                copyOnWrite(cpu, pcb, page);
+            }
+            return true; // a página já chegou: a instrução é repetida
+        }
+        mm.recordFault();
+        if (pt.isPagingOut(page)) {
+            block(cpu, pcb, page); // a própria página está sendo gravada: retoma no fim da gravação
+            return true;
+        }
+        if (prefetching.containsKey(MemoryManager.pageKey(pcb.pid, page))) {
+            prefetchLate++;
+            block(cpu, pcb, page); // já vem na leitura antecipada: acorda quando chegar
+            return true;
+        }
+        if (write) {
+            pt.setPrivate(page, true); // vai ser escrita: não adianta mapear o frame compartilhado
+        } else if (mapShared(pcb, page)) {
+            return true;
+        }
+        fetch(cpu, pcb, page);
+        return true;
+    }
+
+    // Arruma um frame para a página ausente (livre ou de uma vítima) e carrega
+    private void fetch(CPU cpu, PCB pcb, int page) {
+        if (holderStarved(pcb)) {
+            memoryWaiters.add(pcb); // o frame que vagar é de quem tem a ficha
+            block(cpu, pcb, page);
+            return;
+        }
+        if (pcb == tokenHolder) tokenRetry = false;
+        int frame = so.getMemoryManager().allocateFrame(pcb.pid, page);
+        if (frame >= 0) {
+            if (!load(pcb, page, frame)) {
+                block(cpu, pcb, page);
+            }
+        } else {
+            directReclaims++;
+            int[] token = tokenFrames(cpu, pcb);
+            frame = evictFor(pcb, page, pinnedFrames(cpu, pcb, page, token), token);
+            if (frame == NO_VICTIM) {
+                memoryWaiters.add(pcb); // todos os frames em IO: repete a instrução quando algum terminar
+                block(cpu, pcb, page);
+            } else if (frame < 0 || !load(pcb, page, frame)) {
+                block(cpu, pcb, page); // espera a gravação da vítima ou a leitura da página
+            }
+        }
+        if (pcb == tokenHolder && !memoryWaiters.contains(pcb)) {
+            wakeMemoryWaiters(); // quem tem a ficha conseguiu o frame: os outros voltam a tentar
+        }
+    }
+
+    // Frames das outras páginas de que a instrução que faltou precisa: a do pc
+    // e a da falta anterior (o operando, se foi ela que faltou antes). Se uma
+    // pudesse ser vítima da outra, as duas se revezariam no frame para sempre,
+    // sem IO e sem a instrução completar. Somam-se os de quem tem a ficha e
+    // os das instruções em andamento nos outros núcleos: a página que um
+    // acabou de trazer seria a vítima da falta do outro no mesmo instante.
+    private int[] pinnedFrames(CPU cpu, PCB pcb, int page, int[] token) {
+        PageTable pt = pcb.pageTable;
+        List<PCB> others = new ArrayList<>();
+        for (CPU c : so.hw.cpus) {
+            PCB p = so.scheduler.getRunning(c.getId());
+            if (c != cpu && p != null && p != pcb) others.add(p);
+        }
+        int[] running = instructionFrames(others);
+        int[] pins = Arrays.copyOf(token, token.length + running.length + 2);
+        System.arraycopy(running, 0, pins, token.length, running.length);
+        int n = token.length + running.length;
+        for (int pg : new int[]{cpu.getPc() / so.hw.mem.getTamPg(), pcb.lastFaultPage}) {
+            if (pg != page && pg >= 0 && pg < pt.size() && pt.isPresent(pg)) pins[n++] = pt.getFrame(pg);
+        }
+        return Arrays.copyOf(pins, n);
+    }
+
+    // Ficha de swap (swap token do Linux): com a memória toda tomada, cada
+    // página trazida podia ser vítima de outra falta antes de o dono voltar à
+    // CPU, e nenhum processo avançava. Quem falta sem frame livre recebe a
+    // ficha se ela está solta; o dono a perde ao passar da instrução em que a
+    // recebeu, ao ser suspenso ou ao terminar. Enquanto isso as páginas da
+    // instrução dele não são vítimas de ninguém (nem dele mesmo: sem outra
+    // vítima, ele espera) e frame que vagar é dele primeiro
+    // ({@link #holderWaitingForFrame}). Devolve os frames protegidos da falta de pcb.
+    private int[] tokenFrames(CPU cpu, PCB pcb) {
+        if (!tokenValid()) {
+            tokenHolder = null;
+        }
+        if (tokenHolder == null) {
+            tokenHolder = pcb;
+            tokenPc = cpu.getPc();
+        }
+        if (tokenHolder == pcb) return new int[0];
+        return instructionFrames(Collections.singletonList(tokenHolder));
+    }
+
+    // Escrita em página compartilhada: o processo sai do frame e recebe cópia própria
+    private void copyOnWrite(CPU cpu, PCB pcb, int page) {
+        PageTable pt = pcb.pageTable;
+        int frame = pt.getFrame(page);
+        SharedPage sp = sharedFrames.get(frame);
+        if (sp == null || sp.sharers.size() == 1) {
+            if (sp != null) forget(sp);
+            pt.setShared(page, false); // único usuário: o frame vira dele, sem cópia
+            return;
+        }
+        MemoryManager mm = so.getMemoryManager();
+        mm.recordFault();
+        cowCopies++;
+        long[] copy = so.hw.mem.readFrame(frame);
+        boolean dirty = pt.isDirty(page); // unida por conteúdo depois de escrita: slot e imagem estão velhos
+        unshare(sp, pcb, page);
+        pt.release(page);
+        so.tlbShootdown(); // a tradução antiga apontava para o frame compartilhado
+        pt.setPrivate(page, true);
+        int own = mm.allocateFrame(pcb.pid, page);
+        if (own >= 0) {
+            so.hw.mem.writeFrame(own, copy); // cópia do próprio frame compartilhado, sem IO
+            pt.map(page, own);
+            pt.touch(page, dirty ? PageTable.REFERENCED | PageTable.DIRTY : PageTable.REFERENCED);
+            return;
+        }
+        if (dirty) {
+            saveDirty(pcb, page, copy, -1);
+            if (pt.isPagingOut(page)) {
+                block(cpu, pcb, page); // volta do disco depois da gravação
+                return;
+            }
+        }
+        fetch(cpu, pcb, page); // sem frame livre: vítima, e a cópia vem do pool, do slot ou da imagem
+    }
+
+    // Página da imagem já em memória para outro processo do mesmo programa: só mapeia
+    private boolean mapShared(PCB pcb, int page) {
+        PageTable pt = pcb.pageTable;
+        SharedPage[] pages = pcb.programImage == null ? null : textCache.get(pcb.programImage);
+        if (pt.getDiskSlot(page) >= 0 || pages == null || page >= pages.length || pages[page] == null
+                || zswap.contains(MemoryManager.pageKey(pcb.pid, page))) {
+            return false;
+        }
+        SharedPage sp = pages[page];
+        pt.map(page, sp.frame);
+        pt.touch(page, PageTable.REFERENCED);
+        pt.setShared(page, true);
+        sp.add(pcb, page);
+        so.getMemoryManager().addRef(sp.frame);
+        sharedHits++;
+        return true;
+    }
+
+    // Primeira carga da página da imagem: o frame entra no cache de texto
+    private void share(PCB pcb, int page, int frame) {
+        PageTable pt = pcb.pageTable;
+        SharedPage[] pages = textCache.computeIfAbsent(pcb.programImage, k -> new SharedPage[pt.size()]);
+        if (page >= pages.length || pages[page] != null) {
+            return; // outro processo carregou a mesma página antes: esta cópia fica privada
+        }
+        SharedPage sp = new SharedPage(pcb.programImage, page, frame);
+        sp.add(pcb, page);
+        pages[page] = sp;
+        sharedFrames.put(frame, sp);
+        pt.setShared(page, true);
+    }
+
+    // A página do processo deixa de mapear o frame compartilhado; o último a sair libera o frame
+    private void unshare(SharedPage sp, PCB pcb, int page) {
+        MemoryManager mm = so.getMemoryManager();
+        sp.remove(pcb, page);
+        if (sp.sharers.isEmpty()) {
+            forget(sp);
+        } else if (mm.getOwnerPid(sp.frame) == pcb.pid && mm.getOwnerPage(sp.frame) == page) {
+            // a tabela invertida aponta para um usuário vivo
+            mm.moveOwner(sp.frame, sp.sharers.get(0).pid, sp.pages.get(0));
+        }
+        mm.dropRef(sp.frame);
+    }
+
+    private void forget(SharedPage sp) {
+        sharedFrames.remove(sp.frame);
+        if (sp.image == null) return;
+        SharedPage[] pages = textCache.get(sp.image);
+        pages[sp.page] = null;
+        for (SharedPage other : pages) {
+            if (other != null) return;
+        }
+        textCache.remove(sp.image);
+    }
+
+    // Carrega a página no frame já alocado; retorna true se ficou presente na hora
+    private boolean load(PCB pcb, int page, int frame) {
+        PageTable pt = pcb.pageTable;
+        long[] unpacked = zswap.load(MemoryManager.pageKey(pcb.pid, page));
+        if (unpacked != null) {
+            so.hw.mem.writeFrame(frame, unpacked);
+            pt.map(page, frame);
+            pt.touch(page, PageTable.REFERENCED | PageTable.DIRTY); // saiu do pool: a cópia do slot (ou da imagem) está velha
+            return true;
+        }
+        int slot = pt.getDiskSlot(page);
+        if (slot < 0) {
+            boolean shareable = !pt.isPrivate(page) && pcb.programImage != null;
+            so.hw.mem.writeFrame(frame, pcb.getProgramPage(page));
+            pt.map(page, frame);
+            pt.touch(page, PageTable.REFERENCED); // não vira vítima antes de o dono voltar a executar
+            if (shareable) share(pcb, page, frame);
+            minorFaults++;
+            return true;
+        }
+        majorFaults++;
+        so.getMemoryManager().setFlag(frame, MemoryManager.FLAG_IO);
+        readingIn.put(MemoryManager.pageKey(pcb.pid, page), frame);
+        List<Integer> ahead = readAhead(pcb, page);
+        if (ahead.isEmpty()) {
+            so.getDisk().requestPageIn(pcb, page, frame, slot);
+            return false;
+        }
+        // a página da falta e as antecipadas em uma só leitura
+        int[] pages = new int[ahead.size() + 1];
+        int[] frames = new int[pages.length];
+        int[] slots = new int[pages.length];
+        pages[0] = page;
+        frames[0] = frame;
+        slots[0] = slot;
+        for (int i = 1; i < pages.length; i++) {
+            pages[i] = ahead.get(i - 1);
+            frames[i] = prefetching.get(MemoryManager.pageKey(pcb.pid, pages[i]));
+            slots[i] = pt.getDiskSlot(pages[i]);
+        }
+        so.getDisk().requestPageIns(pcb, pages, frames, slots);
+        return false;
+    }
+
+    /**
+     * Ajusta a janela do processo pela falta em {@code page} e reserva frames
+     * livres para as páginas seguintes que estão no disco.
+     *
+     * @return páginas reservadas para leitura antecipada
+     */
+    private List<Integer> readAhead(PCB pcb, int page) {
+        if (page == pcb.readAheadNext) {
+            if (pcb.readAheadWasted > 0) {
+                pcb.readAheadWindow = Math.max(1, pcb.readAheadWindow / 2);
+            } else {
+                pcb.readAheadWindow = Math.min(MAX_READ_AHEAD, Math.max(1, pcb.readAheadWindow * 2));
+            }
+        } else {
+            pcb.readAheadWindow = 0;
+        }
+        pcb.readAheadWasted = 0;
+
+        MemoryManager mm = so.getMemoryManager();
+        PageTable pt = pcb.pageTable;
+        List<Integer> ahead = new ArrayList<>();
+        int p = page + 1;
+        // deixa um frame livre para faltas comuns
+        for (; p <= page + pcb.readAheadWindow && p < pt.size() && mm.getFreeCount() > ahead.size() + 1; p++) {
+            long key = MemoryManager.pageKey(pcb.pid, p);
+            if (pt.isPresent(p) || pt.isPagingOut(p) || pt.getDiskSlot(p) < 0 || prefetching.containsKey(key)
+                    || zswap.contains(key)) {
+                continue; // já em memória, em IO, ou vem da imagem ou do pool sem latência
+            }
+            ahead.add(p);
+        }
+        pcb.readAheadNext = p;
+        if (ahead.isEmpty()) return ahead;
+        int[] pages = new int[ahead.size()];
+        for (int i = 0; i < pages.length; i++) pages[i] = ahead.get(i);
+        int[] frames = mm.allocateFrames(pcb.pid, pages); // páginas seguidas em frames contíguos
+        for (int i = 0; i < pages.length; i++) {
+            mm.setFlag(frames[i], MemoryManager.FLAG_IO);
+            prefetching.put(MemoryManager.pageKey(pcb.pid, pages[i]), frames[i]);
+        }
+        prefetched += ahead.size();
+        return ahead;
+    }
+
+    /**
+     * Página antecipada deixa de ser dúvida: conta acerto se foi acessada,
+     * desperdício se não (chamado no uso, no descarte e no fim do processo).
+     */
+    void settlePrefetch(PCB pcb, int page) {
+        PageTable pt = pcb.pageTable;
+        if (pt == null || !pt.isPrefetched(page)) return;
+        pt.setPrefetched(page, false);
+        if (pt.isReferenced(page) || pt.isDirty(page)) {
+            prefetchHits++;
+        } else {
+            prefetchWasted++;
+            pcb.readAheadWasted++;
+        }
+    }
+
+    private static final int NO_VICTIM = -1;  // todos os frames em IO
+    private static final int PAGING_OUT = -2; // frame reservado, entregue no fim da gravação
+
+    /**
+     * Escolhe a vítima (fora de {@code pinned}) e passa o frame para (pcb,
+     * page). Vítima limpa, ou suja que coube no swap comprimido: o frame é
+     * devolvido já com o novo dono; suja: inicia o page-out e retorna
+     * {@link #PAGING_OUT}.
+     */
+    private int evictFor(PCB pcb, int page, int[] pinned, int[] token) {
+        MemoryManager mm = so.getMemoryManager();
+        int victimFrame = mm.findVictimFrame(pinned);
+        if (victimFrame < 0 && pinned.length > token.length && pcb != tokenHolder && mm.getIoCount() == 0) {
+            victimFrame = mm.findVictimFrame(token); // só sobraram as páginas da instrução e nenhum IO vai acordar a falta
+        }
+        if (victimFrame < 0) {
+            return NO_VICTIM;
+        }
+        int victimPid = mm.getOwnerPid(victimFrame);
+        int victimPage = mm.getOwnerPage(victimFrame);
+        long[] pageData = detach(victimFrame, MemoryManager.pageKey(pcb.pid, page));
+        mm.setOwner(victimFrame, pcb.pid, page);
+        if (pageData == null) {
+            return victimFrame;
+        }
+        pageOuts++;
+        mm.setFlag(victimFrame, MemoryManager.FLAG_IO);
+        frameWaiters.put(victimFrame, pcb);
+        writeBack.put(MemoryManager.pageKey(victimPid, victimPage), pageData);
+        so.getDisk().requestPageOut(victimPid, victimPage, victimFrame, pageData,
+                so.getPCB(victimPid).pageTable.getDiskSlot(victimPage));
+        System.out.println("Page-Out iniciado para processo " + victimPid + ", página " + victimPage);
+        return PAGING_OUT;
+    }
+
+    /**
+     * Tira a página vítima do frame (e todas que o mapeiam, se compartilhado).
+     * Limpa é descartada; suja vai para o swap comprimido ou fica marcada em
+     * gravação, e o chamador inicia o page-out com os dados devolvidos.
+     *
+     * @param keep página que está sendo carregada do pool: não pode ir ao disco
+     * @return dados a gravar no disco, ou null se o frame já pode ser reusado
+     */
+    private long[] detach(int victimFrame, long keep) {
+        MemoryManager mm = so.getMemoryManager();
+        int victimPid = mm.getOwnerPid(victimFrame);
+        int victimPage = mm.getOwnerPage(victimFrame);
+        PCB victim = so.getPCB(victimPid);
+        PageTable vpt = victim == null ? null : victim.pageTable;
+        if (vpt != null) settlePrefetch(victim, victimPage);
+
+        // limpa = igual à cópia do slot, ou à imagem se nunca foi gravada
+        SharedPage sp = sharedFrames.get(victimFrame);
+        boolean dirty = sp == null && vpt != null && vpt.isDirty(victimPage);
+        boolean released = false; // a página do dono já saiu com os demais
+        if (sp != null) {
+            // compartilhada: sai de todos os processos que a mapeiam; quem a
+            // mapeava suja (frame unido por conteúdo) guarda o conteúdo sem frame
+            long[] shared = so.hw.mem.readFrame(victimFrame);
+            for (int i = 0; i < sp.sharers.size(); i++) {
+                PCB sharer = sp.sharers.get(i);
+                PageTable spt = sharer.pageTable;
+                if (spt == null) continue;
+                if (sharer == victim && sp.pages.get(i) == victimPage) released = true;
+                boolean sharerDirty = spt.isDirty(sp.pages.get(i));
+                spt.release(sp.pages.get(i));
+                if (sharerDirty) saveDirty(sharer, sp.pages.get(i), shared, keep);
+            }
+            for (int i = 1; i < sp.sharers.size(); i++) mm.dropRef(victimFrame);
+            forget(sp);
+        }
+        long[] pageData = dirty ? so.hw.mem.readFrame(victimFrame) : null;
+        boolean compressed = dirty && compressOut(victimPid, victimPage, pageData, keep);
+        if (vpt != null && !released) {
+            // liberar de novo apagaria a marca de gravação posta por saveDirty:
+            // o dono voltaria a faltar da imagem velha enquanto o slot é gravado
+            vpt.release(victimPage);
+            if (dirty && !compressed) vpt.setPagingOut(victimPage, true);
+        }
+        so.tlbShootdown(); // a tradução da página vítima deixa de valer
+        if (!dirty) cleanDrops++;
+        return compressed ? null : pageData;
+    }
+
+    /**
+     * Recuperação em segundo plano ({@link PageReclaimer}): com os núcleos
+     * parados, tira vítimas da memória até o GM ter {@code target} frames
+     * livres, contando os que já estão a caminho, sem tocar nas páginas da
+     * instrução em andamento de cada processo. Vítima suja que não coube no
+     * swap comprimido é gravada no disco e o frame volta ao GM no fim da gravação.
+     *
+     * @return frames liberados ou a caminho do GM
+     */
+    int reclaim(int target) {
+        MemoryManager mm = so.getMemoryManager();
+        int[] n = {0};
+        withCoresStopped(() -> {
+            int[] pinned = instructionFrames(so.processes());
+            while (mm.getFreeCount() + freeing < target) {
+                int victimFrame = mm.findVictimFrame(pinned);
+                if (victimFrame < 0) break; // todos os frames em IO ou da instrução em andamento
+                int victimPid = mm.getOwnerPid(victimFrame);
+                int victimPage = mm.getOwnerPage(victimFrame);
+                long[] pageData = detach(victimFrame, -1);
+                n[0]++;
+                if (pageData == null) {
+                    mm.freeFrame(victimFrame);
+                    continue;
+                }
+                pageOuts++;
+                mm.moveOwner(victimFrame, MemoryManager.NO_OWNER); // não é vítima nem é liberado com o processo
+                mm.setFlag(victimFrame, MemoryManager.FLAG_IO);
+                freeing++;
+                writeBack.put(MemoryManager.pageKey(victimPid, victimPage), pageData);
+                so.getDisk().requestPageOut(victimPid, victimPage, victimFrame, pageData,
+                        so.getPCB(victimPid).pageTable.getDiskSlot(victimPage));
+            }
+            if (n[0] > 0) wakeMemoryWaiters();
+        });
+        return n[0];
+    }
+
+    // Frames das páginas da instrução em andamento de cada processo (pc e
+    // falta anterior): tirá-las faria a instrução faltar de novo logo depois
+    // de ter a falta atendida
+    private int[] instructionFrames(Collection<PCB> processes) {
+        List<Integer> pins = new ArrayList<>();
+        for (PCB p : processes) {
+            PageTable pt = p.pageTable;
+            if (pt == null) continue;
+            for (int pg : new int[]{currentPc(p) / so.hw.mem.getTamPg(), p.lastFaultPage}) {
+                if (pg >= 0 && pg < pt.size() && pt.isPresent(pg)) pins.add(pt.getFrame(pg));
+            }
+        }
+        int[] frames = new int[pins.size()];
+        for (int i = 0; i < frames.length; i++) frames[i] = pins.get(i);
+        return frames;
+    }
+
+    private int currentPc(PCB p) {
+        for (CPU cpu : so.hw.cpus) {
+            if (cpu.getCurrentPCB() == p) return cpu.getPc(); // em execução: o pc salvo está velho
+        }
+        return p.pc;
+    }
+
+    /**
+     * Página suja saindo da memória: fica no pool comprimido se couber (as
+     * mais antigas dele vão para o disco para abrir espaço).
+     *
+     * @param keep página que está sendo carregada do pool: não pode ir ao disco
+     * @return false se deve ir direto ao disco
+     */
+    private boolean compressOut(int pid, int page, long[] data, long keep) {
+        if (!zswap.isEnabled()) return false;
+        byte[] z = CompressedSwap.compress(data);
+        if (!zswap.accepts(z)) return false;
+        while (!zswap.hasRoom(z)) {
+            if (!writeBackOldest(keep)) return false;
+        }
+        zswap.put(MemoryManager.pageKey(pid, page), z);
+        return true;
+    }
+
+    // Grava no disco a página mais antiga do pool (nenhum frame envolvido),
+    // exceto as que algum processo espera receber do pool
+    private boolean writeBackOldest(long keep) {
+        long key = -1;
+        for (long k : zswap.keys()) {
+            PCB owner = so.getPCB((int) (k >>> 32));
+            if (k != keep && owner != null && owner.pageTable != null && owner.waitingPage != (int) k) {
+                key = k;
+                break;
+            }
+        }
+        if (key == -1) return false;
+        long[] data = zswap.evict(key);
+        writeOut(so.getPCB((int) (key >>> 32)), (int) key, data);
+        return true;
+    }
+
+    /**
+     * Página suja (já ausente) deixa um frame que continua em uso: o conteúdo
+     * vai para o pool comprimido ou, se não couber, para o disco.
+     */
+    private void saveDirty(PCB pcb, int page, long[] data, long keep) {
+        if (!compressOut(pcb.pid, page, data, keep)) {
+            writeOut(pcb, page, data);
+        }
+    }
+
+    // Page-out sem frame (frame -1): os dados já foram copiados
+    private void writeOut(PCB pcb, int page, long[] data) {
+        PageTable pt = pcb.pageTable;
+        pt.setPagingOut(page, true);
+        writeBack.put(MemoryManager.pageKey(pcb.pid, page), data);
+        pageOuts++;
+        so.getDisk().requestPageOut(pcb.pid, page, -1, data, pt.getDiskSlot(page));
+    }
+
+    /**
+     * Fim do page-in: copia os dados para o frame e desbloqueia o processo,
+     * se ele espera por esta página (página antecipada só fica presente).
+     */
+    public void pageInComplete(PCB process, int page, int frame, long[] data) {
+        MemoryManager mm = so.getMemoryManager();
+        vmLock.lock();
+        try {
+            boolean ahead = prefetching.remove(MemoryManager.pageKey(process.pid, page)) != null;
+            readingIn.remove(MemoryManager.pageKey(process.pid, page));
+            PageTable pt = process.pageTable;
+            if (pt == null || mm.getOwnerPid(frame) != process.pid || mm.getOwnerPage(frame) != page) {
+                return; // processo removido durante o IO: o frame já voltou ao GM
+            }
+            so.hw.mem.writeFrame(frame, data);
+            pt.map(page, frame);
+            mm.clearFlag(frame, MemoryManager.FLAG_IO);
+            boolean waited = process.state == PCB.ProcState.BLOCKED && process.waitingPage == page;
+            if (ahead && !waited) {
+                pt.setPrefetched(page, true); // bit R desligado: só conta acerto se for acessada
+            } else {
+                pt.touch(page, PageTable.REFERENCED);
+                if (ahead) prefetchHits++;
+            }
+            if (waited) wake(process);
+            wakeMemoryWaiters();
+        } finally {
+            vmLock.unlock();
+        }
+    }
+
+    /**
+     * Fim do page-out: registra o slot na tabela da vítima e entrega o frame
+     * ao processo que esperava por ele.
+     *
+     * @return false se o disco estava cheio (a página da vítima se perdeu)
+     */
+    public boolean pageOutComplete(int victimPid, int victimPage, int frame, int slot) {
+        vmLock.lock();
+        try {
+            writeBack.remove(MemoryManager.pageKey(victimPid, victimPage));
+            PCB victim = so.getPCB(victimPid);
+            PageTable vpt = victim == null ? null : victim.pageTable;
+            if (vpt == null && slot >= 0) {
+                so.getDisk().freeSlot(slot); // a vítima terminou durante a gravação: o slot era só dela
+            } else if (vpt != null && victimPage < vpt.size()) {
+                vpt.setPagingOut(victimPage, false);
+                if (slot >= 0) vpt.setDiskSlot(victimPage, slot);
+                if (victim.state == PCB.ProcState.BLOCKED && victim.waitingPage == victimPage && !frameWaiters.containsValue(victim)) {
+                    wake(victim); // a vítima faltou na própria página: repete a instrução e faz page-in
+                }
+            }
+
+            MemoryManager mm = so.getMemoryManager();
+            PCB waiter = frame < 0 ? null : frameWaiters.remove(frame); // frame -1: gravação vinda do pool comprimido
+            boolean unowned = waiter == null && frame >= 0 && mm.getOwnerPid(frame) == MemoryManager.NO_OWNER;
+            PCB holder = holderWaitingForFrame();
+            if (holder != null && (unowned || waiter != null && waiter != holder && waiter.pageTable != null)) {
+                // quem tem a ficha espera frame: fica com este; quem o esperava repete a falta
+                if (unowned) freeing--; else memoryWaiters.add(waiter);
+                memoryWaiters.remove(holder);
+                mm.setOwner(frame, holder.pid, holder.waitingPage);
+                waiter = holder;
+                unowned = false;
+            }
+            if (waiter != null && waiter.pageTable != null) {
+                if (load(waiter, waiter.waitingPage, frame)) {
+                    mm.clearFlag(frame, MemoryManager.FLAG_IO);
+                    wake(waiter);
+                }
+            } else if (unowned) {
+                mm.freeFrame(frame); // gravação de suspensão ou da recuperação: ninguém esperava o frame
+                freeing--;
+            }
+            wakeMemoryWaiters();
+            return slot >= 0;
+        } finally {
+            vmLock.unlock();
+        }
+    }
+
+    /** Devolve ao GM e ao disco tudo que o processo ocupa (inclusive frames em IO). */
+    public void release(PCB pcb) {
+        vmLock.lock();
+        try {
+            PageTable pt = pcb.pageTable;
+            if (pt == null) return;
+            for (int pg = 0; pg < pt.size(); pg++) {
+                SharedPage sp = pt.isShared(pg) ? sharedFrames.get(pt.getFrame(pg)) : null;
+                if (sp != null) unshare(sp, pcb, pg); // frame compartilhado só é liberado pelo último usuário
+            }
+            // frames do processo: os das páginas presentes e os em IO para ele
+            // (leitura da falta, leitura antecipada, vítima em gravação)
+            List<Integer> frames = new ArrayList<>();
+            for (int pg = 0; pg < pt.size(); pg++) {
+                settlePrefetch(pcb, pg);
+                if (pt.isPresent(pg)) frames.add(pt.getFrame(pg));
+                Integer ahead = prefetching.remove(MemoryManager.pageKey(pcb.pid, pg));
+                if (ahead != null) frames.add(ahead);
+                Integer reading = readingIn.remove(MemoryManager.pageKey(pcb.pid, pg));
+                if (reading != null) frames.add(reading);
+            }
+            for (Map.Entry<Integer, PCB> e : frameWaiters.entrySet()) {
+                if (e.getValue().pid == pcb.pid) frames.add(e.getKey());
+            }
+            so.getMemoryManager().freeFramesOf(pcb.pid, frames);
+            zswap.removeAll(pcb.pid);
+            frameWaiters.values().removeIf(p -> p.pid == pcb.pid);
+            memoryWaiters.removeIf(p -> p.pid == pcb.pid);
+            so.getBlockedProcesses().remove(pcb.pid);
+            for (int pg = 0; pg < pt.size(); pg++) {
+                // página em gravação: o slot ainda vai ser escrito, quem libera é pageOutComplete
+                if (pt.getDiskSlot(pg) >= 0 && !pt.isPagingOut(pg)) so.getDisk().freeSlot(pt.getDiskSlot(pg));
+            }
+            pcb.pageTable = null;
+            wakeMemoryWaiters();
+        } finally {
+            vmLock.unlock();
+        }
+    }
+
+    /**
+     * Tira da memória todas as páginas do processo (suspensão pelo controle
+     * de carga): limpas são descartadas, sujas vão para o swap comprimido ou
+     * para o disco (o frame volta ao GM no fim da gravação), compartilhadas
+     * perdem uma referência.
+     *
+     * @return frames devolvidos ou a caminho do GM
+     */
+    public int swapOut(PCB pcb) {
+        MemoryManager mm = so.getMemoryManager();
+        vmLock.lock();
+        try {
+            PageTable pt = pcb.pageTable;
+            if (pt == null) return 0;
+            int n = 0;
+            for (int pg = 0; pg < pt.size(); pg++) {
+                if (!pt.isPresent(pg)) continue;
+                settlePrefetch(pcb, pg);
+                int frame = pt.getFrame(pg);
+                SharedPage sp = pt.isShared(pg) ? sharedFrames.get(frame) : null;
+                if (sp != null) {
+                    boolean dirty = pt.isDirty(pg);
+                    unshare(sp, pcb, pg);
+                    pt.release(pg);
+                    if (dirty) saveDirty(pcb, pg, so.hw.mem.readFrame(frame), -1);
+                    continue;
+                }
+                n++;
+                if (!pt.isDirty(pg)) {
+                    pt.release(pg);
+                    mm.freeFrame(frame);
+                    cleanDrops++;
+                    continue;
+                }
+                long[] data = so.hw.mem.readFrame(frame);
+                int slot = pt.getDiskSlot(pg);
+                pt.release(pg);
+                if (compressOut(pcb.pid, pg, data, -1)) {
+                    mm.freeFrame(frame);
+                    continue;
+                }
+                pt.setPagingOut(pg, true);
+                mm.moveOwner(frame, MemoryManager.NO_OWNER); // não é vítima nem é liberado com o processo
+                mm.setFlag(frame, MemoryManager.FLAG_IO);
+                freeing++;
+                writeBack.put(MemoryManager.pageKey(pcb.pid, pg), data);
+                so.getDisk().requestPageOut(pcb.pid, pg, frame, data, slot);
+                pageOuts++;
+            }
+            so.tlbShootdown();
+            wakeMemoryWaiters();
+            return n;
+        } finally {
+            vmLock.unlock();
+        }
+    }
+
+    /**
+     * Lê o dado de uma posição lógica sem gerar page fault (uso do SO, ex.:
+     * SYSCALL de escrita): da memória se a página está presente, senão dos
+     * dados em gravação, do swap comprimido, do slot no disco ou da imagem do
+     * programa.
+     */
+    public int readData(PCB pcb, int logicalAddress) {
+        int tamPg = so.hw.mem.getTamPg();
+        vmLock.lock();
+        try {
+            int endFisico = so.traduzEndereco(pcb, logicalAddress);
+            if (endFisico >= 0) {
+                return so.hw.mem.readData(endFisico);
+            }
+            int page = logicalAddress / tamPg;
+            int slot = pcb.pageTable.getDiskSlot(page);
+            long[] data = writeBack.get(MemoryManager.pageKey(pcb.pid, page));
+            if (data == null) {
+                data = zswap.peek(MemoryManager.pageKey(pcb.pid, page));
+            }
+            if (data == null && slot >= 0) {
+                data = so.getDisk().readSlotSync(slot);
+            }
+            if (data == null) {
+                data = pcb.getProgramPage(page);
+            }
+            return Memory.pOf(data[logicalAddress % tamPg]);
+        } finally {
+            vmLock.unlock();
+        }
+    }
+
+    /**
+     * Bit R de um frame compartilhado: referenciado se algum dos processos
+     * que o mapeiam o acessou (os bits de todos são zerados).
+     */
+    public boolean testAndClearShared(int frame) {
+        SharedPage sp = sharedFrames.get(frame);
+        boolean r = false;
+        for (int i = 0; sp != null && i < sp.sharers.size(); i++) {
+            PageTable pt = sp.sharers.get(i).pageTable;
+            if (pt != null && pt.isReferenced(sp.pages.get(i))) {
+                pt.clearReferenced(sp.pages.get(i));
+                r = true;
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Roda {@code step} com todos os núcleos parados entre instruções (trava
+     * de execução de cada CPU) e com o vmLock. Para tirar ou trocar o frame de
+     * página de processo que pode estar em execução em outro núcleo fora da
+     * falta dele: nenhuma instrução fica no meio, com a tradução antiga já
+     * feita ou um bit R/D por marcar, e a TLB de cada núcleo é esvaziada antes
+     * da próxima tradução. Ordem: travas de execução → vmLock; não pode ser
+     * chamado com o vmLock.
+     */
+    void withCoresStopped(Runnable step) {
+        CPU[] cpus = so.hw.cpus;
+        for (CPU cpu : cpus) cpu.getExecLock().lock();
+        try {
+            withVmLock(step);
+        } finally {
+            for (int i = cpus.length - 1; i >= 0; i--) cpus[i].getExecLock().unlock();
+        }
+    }
+
+    /** Roda {@code step} com o vmLock: tabelas de páginas e GM não mudam durante o passo. */
+    void withVmLock(Runnable step) {
+        vmLock.lock();
+        try {
+            step.run();
+        } finally {
+            vmLock.unlock();
+        }
+    }
+
+    /**
+     * Frame pode ser unido a outro de conteúdo igual: fora de IO e compartilhado,
+     * ou mapeado pela página do dono registrado.
+     */
+    boolean isMergeable(int frame) {
+        MemoryManager mm = so.getMemoryManager();
+        if (!mm.isAllocated(frame) || (mm.getFlags(frame) & MemoryManager.FLAG_IO) != 0) return false;
+        if (sharedFrames.containsKey(frame)) return true;
+        PCB owner = so.getPCB(mm.getOwnerPid(frame));
+        PageTable pt = owner == null ? null : owner.pageTable;
+        int page = mm.getOwnerPage(frame);
+        return pt != null && page >= 0 && page < pt.size() && pt.isPresent(page) && pt.getFrame(page) == frame
+                && !pt.isPrefetched(page);
+    }
+
+    /**
+     * Une o frame {@code dup} ao {@code keeper}: as páginas que mapeiam
+     * {@code dup} passam a mapear {@code keeper}, compartilhado e só de
+     * leitura, e {@code dup} volta ao GM. As páginas são protegidas contra
+     * escrita antes da comparação; se o conteúdo não confere, nada muda.
+     * Página suja continua suja no frame unido: se sair dele, o conteúdo é
+     * guardado no pool ou no disco. Chamado pelo {@link PageMerger} com os
+     * núcleos parados ({@link #withCoresStopped}).
+     *
+     * @param dupData conteúdo de {@code dup} a conferir com os dois frames
+     * @return true se os frames foram unidos
+     */
+    boolean merge(int keeper, int dup, long[] dupData) {
+        MemoryManager mm = so.getMemoryManager();
+        List<PCB> procs = new ArrayList<>();
+        List<Integer> pages = new ArrayList<>();
+        SharedPage sd = sharedFrames.get(dup);
+        if (sd != null) {
+            procs.addAll(sd.sharers);
+            pages.addAll(sd.pages);
+        } else {
+            procs.add(so.getPCB(mm.getOwnerPid(dup)));
+            pages.add(mm.getOwnerPage(dup));
+        }
+        SharedPage sk = sharedFrames.get(keeper);
+        PCB owner = sk != null ? null : so.getPCB(mm.getOwnerPid(keeper));
+        int ownerPage = mm.getOwnerPage(keeper);
+
+        // escrita a partir daqui gera page fault: o que for igual agora continua igual
+        for (int i = 0; i < procs.size(); i++) {
+            procs.get(i).pageTable.setShared(pages.get(i), true);
+        }
+        if (owner != null) owner.pageTable.setShared(ownerPage, true);
+        boolean same = Arrays.equals(dupData, so.hw.mem.readFrame(keeper))
+                && Arrays.equals(dupData, so.hw.mem.readFrame(dup));
+        if (!same) {
+            for (int i = 0; sd == null && i < procs.size(); i++) {
+                procs.get(i).pageTable.setShared(pages.get(i), false);
+            }
+            if (owner != null) owner.pageTable.setShared(ownerPage, false);
+            return false;
+        }
+
+        if (sk == null) {
+            sk = new SharedPage(null, ownerPage, keeper);
+            sk.add(owner, ownerPage);
+            sharedFrames.put(keeper, sk);
+        }
+        if (sd != null) forget(sd);
+        for (int i = 0; i < procs.size(); i++) {
+            PageTable pt = procs.get(i).pageTable;
+            int page = pages.get(i);
+            int used = pt.getFlags(page) & (PageTable.REFERENCED | PageTable.DIRTY);
+            pt.map(page, keeper);
+            pt.setShared(page, true);
+            if (used != 0) pt.touch(page, used);
+            sk.add(procs.get(i), page);
+            mm.addRef(keeper);
+        }
+        mm.freeFrame(dup);
+        so.tlbShootdown(); // as traduções para dup deixam de valer
+        return true;
+    }
+
+    boolean isShared(int frame) {
+        return sharedFrames.containsKey(frame);
+    }
+
+    /** Frames unidos por conteúdo (fora do cache de texto) e páginas que os mapeiam. */
+    int[] mergedStats() {
+        vmLock.lock();
+        try {
+            int frames = 0;
+            int pages = 0;
+            for (SharedPage sp : sharedFrames.values()) {
+                if (sp.image != null) continue;
+                frames++;
+                pages += sp.sharers.size();
+            }
+            return new int[]{frames, pages};
+        } finally {
+            vmLock.unlock();
+        }
+    }
+
+    private void block(CPU cpu, PCB pcb, int page) {
+        pcb.waitingPage = page;
+        so.getBlockedProcesses().put(pcb.pid, pcb);
+        so.scheduler.block(cpu.getId(), pcb);
+    }
+
+    // um frame pode ter ficado livre (ou fora de IO): quem esperava repete a
+    // falta. Se quem tem a ficha espera, ele recebe o frame livre ou repete a
+    // falta sozinho; os outros só voltam a tentar depois dele
+    private void wakeMemoryWaiters() {
+        PCB holder = holderWaitingForFrame();
+        if (holder != null) {
+            memoryWaiters.remove(holder);
+            int frame = so.getMemoryManager().allocateFrame(holder.pid, holder.waitingPage);
+            if (frame < 0) {
+                tokenRetry = true;
+                wake(holder);
+                return;
+            }
+            if (load(holder, holder.waitingPage, frame)) wake(holder); // senão acorda no fim do page-in
+        }
+        tokenRetry = false;
+        for (PCB p : memoryWaiters) {
+            if (p.state == PCB.ProcState.BLOCKED) wake(p);
+        }
+        memoryWaiters.clear();
+    }
+
+    // A ficha ainda vale: o dono existe, não foi suspenso e não passou da instrução
+    private boolean tokenValid() {
+        PCB h = tokenHolder;
+        return h != null && so.getPCB(h.pid) == h && h.pageTable != null
+                && h.state != PCB.ProcState.SUSPENDED && currentPc(h) == tokenPc;
+    }
+
+    // Quem tem a ficha espera frame (ou foi acordado para tentar de novo): a
+    // falta de pcb não pode tomar o frame que vagou
+    private boolean holderStarved(PCB pcb) {
+        return pcb != tokenHolder && tokenValid() && (tokenRetry || memoryWaiters.contains(tokenHolder));
+    }
+
+    // Quem tem a ficha, se está bloqueado esperando frame para a página da falta
+    private PCB holderWaitingForFrame() {
+        PCB h = tokenHolder;
+        if (!tokenValid() || h.state != PCB.ProcState.BLOCKED || !memoryWaiters.contains(h)) return null;
+        int page = h.waitingPage;
+        if (page < 0 || h.pageTable.isPresent(page) || h.pageTable.isPagingOut(page)) return null;
+        return h;
+    }
+
+    private void wake(PCB pcb) {
+        pcb.waitingPage = -1;
+        so.getBlockedProcesses().remove(pcb.pid);
+        pcb.state = PCB.ProcState.READY;
+        so.scheduler.addToReady(pcb);
+    }
+
+    public long getMinorFaults() { return minorFaults; }
+    public long getMajorFaults() { return majorFaults; }
+    public long getPageOuts() { return pageOuts; }
+    public long getCleanDrops() { return cleanDrops; }
+    public long getSharedHits() { return sharedHits; }
+    public long getCowCopies() { return cowCopies; }
+    public long getPrefetched() { return prefetched; }
+    public long getPrefetchHits() { return prefetchHits; }
+    public long getPrefetchWasted() { return prefetchWasted; }
+    public long getDirectReclaims() { return directReclaims; }
+
+    @Override
+    public String toString() {
+        return String.format("Faltas: %d sem IO (imagem do programa) | %d com page-in do disco | %d processos bloqueados\n" +
+                        "Vítimas: %d gravadas no disco | %d limpas descartadas (gravações evitadas)\n" +
+                        "Texto compartilhado: %d frames | %d faltas atendidas pelo frame de outro processo | %d cópias na escrita (COW)\n" +
+                        "Leitura antecipada: %d páginas | %d usadas (%d ainda em leitura na falta) | %d descartadas sem uso\n%s",
+                minorFaults, majorFaults, so.getBlockedProcesses().size(), pageOuts, cleanDrops,
+                sharedFrames.size() - mergedStats()[0], sharedHits, cowCopies,
+                prefetched, prefetchHits, prefetchLate, prefetchWasted, zswap);
+    }
+}
@@ -1,17 +1,23 @@
 package software;
 
+import hardware.CPU;
 import hardware.Hw;
+import hardware.TLB;
 import hardware.Word;
 import hardware.Disk;
 import menagers.MemoryManager;
+import menagers.ReplacementPolicy;
 import program.Program;
 import program.Programs;
+import util.Tracer;
 import util.Utilities;
 
 
+import java.io.IOException;
 import java.util.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -29,6 +35,10 @@ public class SO {
 
     // Gerente de Memória (GM paginado)
     private MemoryManager memoryManager;
+    private Pager pager; // page faults e IO de páginas
+    private LoadControl loadControl; // working sets e suspensão de processos
+    private PageMerger pageMerger; // união de frames de conteúdo igual
+    private PageReclaimer pageReclaimer; // recuperação de frames em segundo plano
 
     // Gerente de Processos (GP)
     private Map<Integer, PCB> processTable;
@@ -50,8 +60,10 @@ public class SO {
         this.hw = hw;
         ih = new InterruptHandling(this); // rotinas de tratamento de int
         sc = new SysCallHandling(this); // chamadas de sistema
-        hw.cpu.setAddressOfHandlers(ih, sc);
-        hw.cpu.setSO(this);
+        for (CPU cpu : hw.cpus) {
+            cpu.setAddressOfHandlers(ih, sc);
+            cpu.setSO(this);
+        }
         utils = new Utilities(hw);
         // Disco com 32 slots, latência simulada de 200ms
         this.disk = new Disk(
@@ -62,14 +74,19 @@ public class SO {
         );
 
 
-        this.blockedProcesses = new HashMap<>();
+        this.blockedProcesses = new ConcurrentHashMap<>(); // núcleos, thread do disco e shell
 
 
         // Inicializar GM com parâmetros da memória
         memoryManager = new MemoryManager(hw.mem.getTamMem(), hw.mem.getTamPg());
 
         // Inicializar GP
-        processTable = new HashMap<>();
+        processTable = new ConcurrentHashMap<>(); // acessada pelos núcleos e pelo shell
+        memoryManager.setReferenceBits(this::testAndClearReferenced);
+        pager = new Pager(this);
+        loadControl = new LoadControl(this);
+        pageMerger = new PageMerger(this);
+        pageReclaimer = new PageReclaimer(this);
         nextPid = new AtomicInteger(1);
 
         // Inicializar Escalonador
@@ -84,37 +101,36 @@ public class SO {
 
     // ============== GERENTE DE MEMÓRIA (GM PAGINADO) ==============
 
+    // Paginação sob demanda: cria só a tabela de páginas, com todas ausentes;
+    // cada página recebe um frame no primeiro acesso (ver Pager)
     public boolean gmAloca(int nroPalavras, PCB pcb) {
         int numPages = (int) Math.ceil((double) nroPalavras / hw.mem.getTamPg());
         pcb.numPages = numPages;
-        pcb.pageTable = memoryManager.allocate(nroPalavras);
-
-        if (pcb.pageTable == null) {
-            System.out.println("ERRO: Não foi possível alocar " + numPages + " páginas para o processo " + pcb.pid);
-            return false;
-        }
-
-        System.out.println("GM: Alocadas " + numPages + " páginas para processo " + pcb.pid +
-                " (" + nroPalavras + " palavras)");
-        System.out.print("Frames alocados: ");
-        for (int i = 0; i < pcb.pageTable.length; i++) {
-            System.out.print("pg" + i + "→frame" + pcb.pageTable[i] + " ");
-        }
-        System.out.println();
+        pcb.pageTable = new PageTable(numPages);
 
+        System.out.println("GM: Espaço lógico de " + numPages + " páginas para processo " + pcb.pid +
+                " (" + nroPalavras + " palavras), carregadas sob demanda");
         return true;
     }
 
     public void gmDesaloca(PCB pcb) {
         if (pcb.pageTable != null) {
-            memoryManager.deallocate(pcb.pageTable);
+            pager.release(pcb);
+            tlbShootdown(); // frames liberados: traduções antigas não valem mais
             System.out.println("GM: Desalocada memória do processo " + pcb.pid);
-            pcb.pageTable = null;
+            loadControl.exit(pcb);
         }
     }
 
+    /**
+     * Traduz um endereço lógico do processo para físico.
+     *
+     * @return o endereço físico, ou -1 se a página não está presente (page fault)
+     * @throws RuntimeException se o processo não tem memória ou a página está fora do espaço lógico
+     */
     public int traduzEndereco(PCB pcb, int endLogico) {
-        if (pcb.pageTable == null) {
+        PageTable pageTable = pcb.pageTable;
+        if (pageTable == null) {
             throw new RuntimeException("Processo " + pcb.pid + " não tem tabela de páginas");
         }
 
@@ -122,32 +138,23 @@ public class SO {
         int pagina = endLogico / tamPg;
         int offset = endLogico % tamPg;
 
-        if (pagina >= pcb.pageTable.length) {
+        if (pagina >= pageTable.size()) {
             throw new RuntimeException("Acesso à página " + pagina + " inválida para processo " + pcb.pid);
         }
+        if (!pageTable.isPresent(pagina)) {
+            return -1;
+        }
 
-        int frame = pcb.pageTable[pagina];
+        int frame = pageTable.getFrame(pagina);
         int endFisico = frame * tamPg + offset;
 
         if (globalTrace || pcb.trace) {
-            System.out.println("Tradução: endLog=" + endLogico + " → pg=" + pagina +
-                    ", offset=" + offset + ", frame=" + frame + " → endFis=" + endFisico);
+            hw.tracer.event(Tracer.Event.TRANSLATE, -1, pcb.pid, endLogico, pagina, frame, endFisico);
         }
 
         return endFisico;
     }
 
-    // Carregamento de programa por página
-    public void carregaPrograma(Program programa, PCB pcb) {
-        Word[] programImage = programa.image;
-        for (int i = 0; i < programImage.length; i++) {
-            int endLogico = i;
-            int endFisico = traduzEndereco(pcb, endLogico);
-            hw.mem.write(endFisico, programImage[i]);
-        }
-        System.out.println("Programa '" + programa.name + "' carregado para processo " + pcb.pid);
-    }
-
     private int computeRequiredWords(Program programa) {
         int needed = programa.image.length;
         for (Word w : programa.image) {
@@ -192,14 +199,21 @@ public class SO {
                 return -1;
             }
 
-            // Carregar programa
-            carregaPrograma(programa, pcb);
+            // Verificar uma vez: programas válidos rodam sem checagens redundantes por instrução
+            String erro = Verifier.check(programa.image, pcb.numPages * hw.mem.getTamPg());
+            pcb.verified = (erro == null);
+            if (erro != null) {
+                System.out.println("AVISO: programa '" + nomeProg + "' não verificado (" + erro + "); executará com checagens");
+            }
+
+            // A imagem fica no PCB: as páginas são carregadas no primeiro acesso
+            pcb.setProgramImage(programa.image, hw.mem.getTamPg());
 
             // Adicionar à tabela de processos
             processTable.put(pid, pcb);
 
-            // Colocar na fila READY
-            scheduler.addToReady(pcb);
+            // Colocar na fila READY (ou suspenso, se a memória já está comprometida)
+            loadControl.admit(pcb);
 
             System.out.println("Processo criado: pid=" + pid + ", nome=" + nomeProg +
                     ", tamanho=" + requiredWords + " palavras (image=" + programa.image.length + ")");
@@ -235,6 +249,11 @@ public class SO {
         }
     }
 
+    // Processos sem o SO.lock (o mapa é concorrente): para quem já tem o vmLock
+    Collection<PCB> processes() {
+        return processTable.values();
+    }
+
     public List<PCB> ps() {
         lock.lock();
         try {
@@ -258,15 +277,21 @@ public class SO {
 
             // Mostrar mapeamento lógico → físico
             sb.append("Mapeamento memória:\n");
-            for (int pg = 0; pg < pcb.numPages; pg++) {
-                int frame = pcb.pageTable[pg];
+            PageTable pt = pcb.pageTable;
+            for (int pg = 0; pt != null && pg < pt.size(); pg++) {
                 int endLogIni = pg * hw.mem.getTamPg();
                 int endLogFim = Math.min(endLogIni + hw.mem.getTamPg() - 1, pcb.tamanhoEmPalavras - 1);
+                if (!pt.isPresent(pg)) {
+                    sb.append(String.format("  Página %d (end.lóg %d-%d) → ausente (slot %d) [%s]\n",
+                            pg, endLogIni, endLogFim, pt.getDiskSlot(pg), pt.flagsString(pg)));
+                    continue;
+                }
+                int frame = pt.getFrame(pg);
                 int endFisIni = frame * hw.mem.getTamPg();
                 int endFisFim = endFisIni + hw.mem.getTamPg() - 1;
 
-                sb.append(String.format("  Página %d (end.lóg %d-%d) → Frame %d (end.fís %d-%d)\n",
-                        pg, endLogIni, endLogFim, frame, endFisIni, endFisFim));
+                sb.append(String.format("  Página %d (end.lóg %d-%d) → Frame %d (end.fís %d-%d) [%s]\n",
+                        pg, endLogIni, endLogFim, frame, endFisIni, endFisFim, pt.flagsString(pg)));
             }
 
             return sb.toString();
@@ -279,17 +304,119 @@ public class SO {
         StringBuilder sb = new StringBuilder();
         sb.append("=== FRAMES (0=livre, 1=ocupado) ===\n");
         boolean[] v = memoryManager.getFrames();
-        int livres = 0, ocupados = 0;
-        for (boolean b : v) { if (b) ocupados++; else livres++; }
-        sb.append(String.format("Total: %d | Livres: %d | Ocupados: %d | tamPg=%d\n\n", v.length, livres, ocupados, hw.mem.getTamPg()));
+        int livres = memoryManager.getFreeCount();
+        int ocupados = v.length - livres;
+        sb.append(String.format("Total: %d | Livres: %d | Ocupados: %d | tamPg=%d\n", v.length, livres, ocupados, hw.mem.getTamPg()));
+        sb.append(memoryManager.fragmentationReport()).append("\n");
         for (int i = 0; i < v.length; i++) {
             int ini = i * hw.mem.getTamPg();
             int fim = ini + hw.mem.getTamPg() - 1;
-            sb.append(String.format("frame %3d: [%4d..%4d]  %s\n", i, ini, fim, v[i] ? "1" : "0"));
+            sb.append(String.format("frame %3d: [%4d..%4d]  %s", i, ini, fim, v[i] ? "1" : "0"));
+            int pid = memoryManager.getOwnerPid(i);
+            if (v[i] && pid != MemoryManager.NO_OWNER) {
+                sb.append(String.format("  pid=%d pg=%d", pid, memoryManager.getOwnerPage(i)));
+            }
+            if (memoryManager.getRefCount(i) > 1) {
+                sb.append(String.format("  compartilhado x%d", memoryManager.getRefCount(i)));
+            }
+            if ((memoryManager.getFlags(i) & MemoryManager.FLAG_IO) != 0) {
+                sb.append("  [IO]");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    // Bit R da página, para a política de substituição do GM
+    private boolean testAndClearReferenced(int pid, int page) {
+        PCB pcb = processTable.get(pid);
+        PageTable pt = pcb == null ? null : pcb.pageTable;
+        if (pt == null || page < 0 || page >= pt.size()) return false;
+        if (pt.isShared(page)) return pager.testAndClearShared(pt.getFrame(page));
+        boolean r = pt.isReferenced(page);
+        if (r && pt.isPrefetched(page)) pager.settlePrefetch(pcb, page); // antecipada e já usada
+        if (r) pt.clearReferenced(page);
+        return r;
+    }
+
+    // ============== MEMÓRIA VIRTUAL ==============
+
+    public String vmStatus() {
+        return memoryManager.policyReport() + memoryManager.fragmentationReport() + pager + "\n" + pageReclaimer + "\n" + pageMerger + "\n" +
+                loadControl + "\n";
+    }
+
+    /** Troca a política de substituição (fifo, clock, aging ou arc). */
+    public void setReplacementPolicy(String nome) {
+        try {
+            memoryManager.setReplacementPolicy(ReplacementPolicy.forName(nome, memoryManager.getFrameQuantity()));
+            System.out.println("Política de substituição: " + nome.toLowerCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("ERRO: " + e.getMessage());
+        }
+    }
+
+    /** Invalida as TLBs de todos os núcleos (mapeamentos mudaram). */
+    public void tlbShootdown() {
+        for (CPU cpu : hw.cpus) {
+            cpu.getTlb().shootdown();
+        }
+    }
+
+    public String tlbStatus() {
+        StringBuilder sb = new StringBuilder();
+        for (CPU cpu : hw.cpus) {
+            TLB tlb = cpu.getTlb();
+            sb.append("cpu").append(cpu.getId()).append(": ").append(tlb).append("\n");
         }
         return sb.toString();
     }
 
+    public void tlbReset() {
+        for (CPU cpu : hw.cpus) {
+            cpu.getTlb().resetStats();
+        }
+    }
+
+    // ============== PROFILER ==============
+
+    public void profileOn() {
+        hw.profiler.setEnabled(true);
+        System.out.println("Profiler ligado");
+    }
+
+    public void profileOff() {
+        hw.profiler.setEnabled(false);
+        System.out.println("Profiler desligado");
+    }
+
+    public void profileReset() {
+        hw.profiler.reset();
+        for (PCB pcb : processTable.values()) {
+            pcb.profile = null; // recriado na próxima instrução contada
+        }
+        System.out.println("Contadores do profiler zerados");
+    }
+
+    /** Mistura de instruções de todos os processos (por opcode). */
+    public String profile() {
+        return hw.profiler.instructionMix();
+    }
+
+    /** PCs mais executados do processo (também depois que ele terminou). */
+    public String profile(int pid, int limite) {
+        return hw.profiler.hotPcs(pid, limite);
+    }
+
+    public void profileCsv(String arquivo) {
+        try {
+            hw.profiler.writeCsv(arquivo);
+            System.out.println("Profile gravado em " + arquivo);
+        } catch (IOException e) {
+            System.out.println("ERRO: não foi possível gravar " + arquivo + ": " + e.getMessage());
+        }
+    }
+
     public String dumpM(int ini, int fim) {
         StringBuilder sb = new StringBuilder();
         sb.append("=== DUMP MEMÓRIA FÍSICA ").append(ini).append("-").append(fim).append(" ===\n");
@@ -304,66 +431,58 @@ public class SO {
 
     // ============== CONTROLE DE EXECUÇÃO ==============
 
+    /**
+     * Modo debug: o processo é o próximo despachado no núcleo 0 e roda sem
+     * TIMER até terminar (ou até {@link CPU#EXEC_SLICE} instruções, quando
+     * volta ao round-robin). Faltas de página passam pelo {@link Pager} como
+     * as de qualquer processo: com IO, o núcleo fica com outro processo até a
+     * página chegar. Sem as threads dos núcleos (testes), o núcleo 0 é
+     * dirigido daqui.
+     */
     public void exec(int pid) {
+        PCB pcb;
         lock.lock();
         try {
-            PCB pcb = processTable.get(pid);
+            pcb = processTable.get(pid);
             if (pcb == null) {
                 System.out.println("ERRO: Processo " + pid + " não existe");
                 return;
             }
 
             System.out.println("Executando processo " + pid + " em modo debug (sem preempção)");
+            pcb.nonPreemptive = true;
+            scheduler.runNext(pcb);
+        } finally {
+            lock.unlock(); // o STOP do processo remove-o com este lock
+        }
 
-            // Remover do escalonador se estiver lá
-            scheduler.removeProcess(pid);
-
-            // Modo debug: execução sem preempção
-            hw.cpu.setPreemptive(false);
-            hw.cpu.setContext(pcb);
-            pcb.state = PCB.ProcState.RUNNING;
-
-            // Execução passo a passo até terminar ou dar erro
-            int maxSteps = 1000; // Limite para evitar loop infinito
-            int steps = 0;
-
-            while (pcb.state == PCB.ProcState.RUNNING && steps < maxSteps) {
-                hw.cpu.step();
-                hw.cpu.saveContext(pcb);
-                steps++;
-
-                // Verificar se processo terminou por STOP ou erro
-                if (pcb.state == PCB.ProcState.TERMINATED) {
-                    break;
-                }
-
-                // Pequena pausa para evitar loop muito rápido
-                try {
-                    Thread.sleep(1);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-
-            if (steps >= maxSteps) {
-                System.out.println("AVISO: Execução interrompida após " + maxSteps + " passos");
+        boolean threads = hw.cpu.isActive();
+        while (processTable.get(pid) == pcb && pcb.nonPreemptive) {
+            if (!threads && hw.cpu.dispatchQuantum() >= 0) continue;
+            try {
+                Thread.sleep(1); // esperando a página ou a vez no núcleo
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             }
+        }
 
-            System.out.println("Execução do processo " + pid + " finalizada (estado: " + pcb.state + ")");
-        } finally {
-            lock.unlock();
+        if (processTable.get(pid) == pcb && !pcb.nonPreemptive) {
+            System.out.println("AVISO: Execução sem preempção interrompida após " + CPU.EXEC_SLICE
+                    + " instruções; o processo segue escalonado");
         }
+        pcb.nonPreemptive = false;
+        System.out.println("Execução do processo " + pid + " finalizada (estado: " + pcb.state + ")");
     }
 
     public void execAll() {
         System.out.println("Iniciando execução escalonada de todos os processos...");
 
         // Sinalizar escalonador que há trabalho
-        scheduler.scheduleNext();
+        scheduler.scheduleAll();
 
-        // Aguardar até todos os processos terminarem
-        while (scheduler.hasReadyProcesses()) {
+        // Aguardar até todos os processos terminarem (inclusive os bloqueados em IO de página e os suspensos)
+        while (scheduler.hasReadyProcesses() || !blockedProcesses.isEmpty() || loadControl.getSuspendedCount() > 0) {
             try {
                 Thread.sleep(100);
             } catch (InterruptedException e) {
@@ -388,13 +507,41 @@ public class SO {
     // ============== CONTROLE DE TRACE ==============
 
     public void traceOn() {
+        traceOn(Tracer.DEFAULT_FILE);
+    }
+
+    /**
+     * Liga o trace binário: instruções, traduções, trocas de contexto e
+     * page-in/out são gravadas em {@code arquivo} (ver {@link #traceDecode}).
+     */
+    public void traceOn(String arquivo) {
+        try {
+            hw.tracer.start(arquivo);
+        } catch (IOException e) {
+            System.out.println("ERRO: não foi possível abrir " + arquivo + ": " + e.getMessage());
+            return;
+        }
         globalTrace = true;
-        System.out.println("Trace global ativado");
+        System.out.println("Trace global ativado (arquivo " + arquivo + ")");
     }
 
     public void traceOff() {
         globalTrace = false;
-        System.out.println("Trace global desativado");
+        hw.tracer.stop();
+        System.out.println("Trace global desativado: " + hw.tracer);
+    }
+
+    /** Converte o arquivo de trace em texto (no máximo {@code limite} registros; <= 0 para todos). */
+    public void traceDecode(String arquivo, long limite) {
+        if (hw.tracer.isEnabled() && arquivo.equals(hw.tracer.getFile())) {
+            System.out.println("AVISO: trace ainda ativo; use traceOff para gravar os registros pendentes");
+        }
+        try {
+            long n = Tracer.decode(arquivo, limite, System.out);
+            System.out.println(n + " registros decodificados");
+        } catch (IOException e) {
+            System.out.println("ERRO: " + e.getMessage());
+        }
     }
 
     // ============== GETTERS ==============
@@ -415,27 +562,36 @@ public class SO {
         return blockedProcesses;
     }
 
+    public LoadControl getLoadControl() {
+        return loadControl;
+    }
+
+    public PageMerger getPageMerger() {
+        return pageMerger;
+    }
+
+    public PageReclaimer getPageReclaimer() {
+        return pageReclaimer;
+    }
+
+    public Pager getPager() {
+        return pager;
+    }
+
     public MemoryManager getMemoryManager() {
         return memoryManager;
     }
 
     /**
-     * Encontra o processo dono de um determinado frame físico.
+     * Encontra o processo dono de um determinado frame físico, em O(1) pela
+     * tabela invertida de frames do GM.
      *
      * @param frameIndex índice do frame físico.
      * @return o PCB do processo que possui esse frame, ou null se não encontrado.
      */
     public PCB findProcessByFrame(int frameIndex) {
-        for (PCB pcb : processTable.values()) {
-            if (pcb.pageTable != null) {
-                for (int frame : pcb.pageTable) {
-                    if (frame == frameIndex) {
-                        return pcb;
-                    }
-                }
-            }
-        }
-        return null;
+        int pid = memoryManager.getOwnerPid(frameIndex);
+        return pid == MemoryManager.NO_OWNER ? null : processTable.get(pid);
     }
 
     public Disk getDisk() {
@@ -1,130 +1,322 @@
 package software;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import hardware.CPU;
+import util.Tracer;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Escalonador Round-Robin multiprocessado.
+ *
+ * Cada núcleo (CPU) tem sua própria fila READY, protegida por um lock do
+ * núcleo, e seu próprio slot {@code running}. Novos processos vão para a fila
+ * mais curta; processos preemptados voltam para a fila do núcleo onde rodavam.
+ * Um núcleo sem trabalho rouba o processo do fim da fila mais longa.
+ */
 public class Scheduler implements Runnable {
-    private BlockingQueue<PCB> readyQueue;
-    private PCB running;
+    private final ArrayDeque<PCB>[] readyQueues;   // readyQueues[c] protegida por coreLocks[c]
+    private final ReentrantLock[] coreLocks;
+    private final AtomicReferenceArray<PCB> running; // running[c] = processo em execução no núcleo c
+    private final int nCores;
     private SO so;
-    
+
+    // lock/condição usados somente para acordar a thread do escalonador
     private ReentrantLock lock;
     private Condition hasWork;
-    private boolean active;
-    
+    private volatile boolean active;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public Scheduler(SO so) {
         this.so = so;
-        this.readyQueue = new LinkedBlockingQueue<>();
-        this.running = null;
+        this.nCores = so.hw.cpus.length;
+        this.readyQueues = new ArrayDeque[nCores];
+        this.coreLocks = new ReentrantLock[nCores];
+        for (int c = 0; c < nCores; c++) {
+            readyQueues[c] = new ArrayDeque<>();
+            coreLocks[c] = new ReentrantLock();
+        }
+        this.running = new AtomicReferenceArray<>(nCores);
         this.lock = new ReentrantLock();
         this.hasWork = lock.newCondition();
         this.active = true;
     }
-    
+
+    public int getCoreCount() {
+        return nCores;
+    }
+
     public void addToReady(PCB pcb) {
-        lock.lock();
+        int core = shortestQueue();
+        coreLocks[core].lock();
         try {
             pcb.state = PCB.ProcState.READY;
-            readyQueue.offer(pcb);
-            hasWork.signal(); // Sinaliza que há trabalho
-            System.out.println("Processo " + pcb.pid + " (" + pcb.nome + ") adicionado à fila READY");
+            readyQueues[core].offer(pcb);
+        } finally {
+            coreLocks[core].unlock();
+        }
+        so.hw.tracer.event(Tracer.Event.READY, core, pcb.pid, pcb.pc, 0, 0, 0);
+        signalWork();
+    }
+
+    // leitura sem lock dos tamanhos: basta uma estimativa para balancear
+    private int shortestQueue() {
+        int best = 0;
+        int bestSize = Integer.MAX_VALUE;
+        for (int c = 0; c < nCores; c++) {
+            int size = readyQueues[c].size() + (running.get(c) != null ? 1 : 0);
+            if (size < bestSize) {
+                best = c;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    private void signalWork() {
+        lock.lock();
+        try {
+            hasWork.signalAll(); // Sinaliza que há trabalho (thread do escalonador e núcleos ociosos)
         } finally {
             lock.unlock();
         }
     }
-    
-    public void onTimer() {
+
+    /**
+     * Usado por um núcleo ocioso: espera até haver processo em alguma fila
+     * READY (ou o tempo esgotar), sem ficar em busy-wait.
+     *
+     * @return false se a thread foi interrompida
+     */
+    public boolean awaitWork(long timeoutMillis) {
         lock.lock();
         try {
-            if (running != null) {
-                int prevPid = running.pid;
-                int prevPc = running.pc;
-                int delta = so.hw.cpu.getDelta();
-                System.out.println(String.format("[CTX] TIMER: preempção após %d instruções | from pid=%d pc=%d", delta, prevPid, prevPc));
+            if (!hasQueuedProcesses() && active) {
+                hasWork.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onTimer() {
+        onTimer(0);
+    }
+
+    /**
+     * Preempção por tempo no núcleo: salva o contexto, devolve o processo ao
+     * fim da fila do próprio núcleo e já despacha o próximo.
+     */
+    public void onTimer(int core) {
+        PCB current;
+        coreLocks[core].lock();
+        try {
+            current = running.get(core);
+            if (current != null) {
+                CPU cpu = so.hw.cpus[core];
+                so.getLoadControl().sample(current, cpu.getInstructionCount());
                 // Salvar contexto
-                so.hw.cpu.saveContext(running);
+                cpu.saveContext(current);
+                so.hw.tracer.event(Tracer.Event.TIMER, core, current.pid, current.pc, 0, 0, 0);
                 // Colocar de volta na fila READY
-                running.state = PCB.ProcState.READY;
-                readyQueue.offer(running);
-                running = null;
-                hasWork.signal(); // Sinaliza para escalonar próximo
+                current.state = PCB.ProcState.READY;
+                readyQueues[core].offer(current);
+                running.set(core, null);
             }
         } finally {
-            lock.unlock();
+            coreLocks[core].unlock();
+        }
+        if (current != null) {
+            so.getLoadControl().balance(); // fora dos locks do núcleo
+            so.getPageMerger().tick();
         }
+        scheduleNext(core);
     }
-    
+
+    /**
+     * Bloqueia o processo (page fault com IO): se está em execução no núcleo,
+     * salva o contexto e libera o núcleo; não volta à fila READY até ser
+     * desbloqueado com {@link #addToReady}.
+     */
+    public void block(int core, PCB pcb) {
+        coreLocks[core].lock();
+        try {
+            if (running.get(core) == pcb) {
+                so.hw.cpus[core].saveContext(pcb);
+                so.getLoadControl().sample(pcb, so.hw.cpus[core].getInstructionCount());
+                running.set(core, null);
+            }
+            pcb.state = PCB.ProcState.BLOCKED;
+        } finally {
+            coreLocks[core].unlock();
+        }
+        scheduleNext(core);
+    }
+
     public void scheduleNext() {
-        lock.lock();
+        scheduleNext(0);
+    }
+
+    /**
+     * Despacha o próximo processo no núcleo, se ele estiver livre: primeiro da
+     * própria fila; se vazia, rouba de outro núcleo.
+     */
+    public void scheduleNext(int core) {
+        coreLocks[core].lock();
         try {
-            if (running == null && !readyQueue.isEmpty()) {
-                PCB next = readyQueue.poll();
+            if (running.get(core) == null) {
+                PCB next = readyQueues[core].poll();
+                if (next == null) {
+                    next = steal(core);
+                }
                 if (next != null) {
-                    int nextPid = next.pid;
-                    running = next;
-                    running.state = PCB.ProcState.RUNNING;
-                    so.hw.cpu.setContext(running);
-                    System.out.println(String.format("[CTX] Switch -> pid=%d (%s) pc=%d", nextPid, running.nome, running.pc));
+                    next.state = PCB.ProcState.RUNNING;
+                    so.hw.cpus[core].setContext(next);
+                    running.set(core, next); // publica depois do contexto carregado
+                    so.hw.tracer.event(Tracer.Event.SWITCH, core, next.pid, next.pc, 0, 0, 0);
                 }
             }
         } finally {
-            lock.unlock();
+            coreLocks[core].unlock();
         }
     }
-    
-    public void removeProcess(int pid) {
-        lock.lock();
-        try {
-            // Remove da fila READY
-            readyQueue.removeIf(pcb -> pcb.pid == pid);
-            
-            // Se está em execução, remove
-            if (running != null && running.pid == pid) {
-                running = null;
-                hasWork.signal(); // Sinaliza para escalonar próximo
+
+    /** Despacha em todos os núcleos livres. */
+    public void scheduleAll() {
+        for (int c = 0; c < nCores; c++) {
+            scheduleNext(c);
+        }
+    }
+
+    // Rouba do fim da fila mais longa; tryLock evita deadlock entre dois ladrões
+    private PCB steal(int thief) {
+        int victim = -1;
+        int victimSize = 0;
+        for (int c = 0; c < nCores; c++) {
+            int size = readyQueues[c].size();
+            if (c != thief && size > victimSize) {
+                victim = c;
+                victimSize = size;
             }
+        }
+        if (victim < 0 || !coreLocks[victim].tryLock()) {
+            return null;
+        }
+        try {
+            return readyQueues[victim].pollLast();
         } finally {
-            lock.unlock();
+            coreLocks[victim].unlock();
         }
     }
-    
-    public PCB getRunning() {
-        lock.lock();
+
+    /**
+     * Tira o processo da fila READY em que ele está (suspensão pelo controle
+     * de carga).
+     *
+     * @return false se ele não estava em nenhuma fila (já foi despachado)
+     */
+    public boolean dequeue(PCB pcb) {
+        for (int c = 0; c < nCores; c++) {
+            coreLocks[c].lock();
+            try {
+                if (readyQueues[c].remove(pcb)) return true;
+            } finally {
+                coreLocks[c].unlock();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Passa o processo para o início da fila do núcleo 0 (exec em modo
+     * debug): é o próximo despachado ali. Em execução ou bloqueado, segue o
+     * caminho normal.
+     */
+    public void runNext(PCB pcb) {
+        if (!dequeue(pcb)) return;
+        coreLocks[0].lock();
         try {
-            return running;
+            readyQueues[0].addFirst(pcb);
         } finally {
-            lock.unlock();
+            coreLocks[0].unlock();
         }
+        signalWork();
     }
-    
+
+    public void removeProcess(int pid) {
+        for (int c = 0; c < nCores; c++) {
+            coreLocks[c].lock();
+            try {
+                // Remove da fila READY
+                readyQueues[c].removeIf(pcb -> pcb.pid == pid);
+
+                // Se está em execução, remove
+                PCB current = running.get(c);
+                if (current != null && current.pid == pid) {
+                    running.set(c, null);
+                }
+            } finally {
+                coreLocks[c].unlock();
+            }
+        }
+        signalWork(); // Sinaliza para escalonar próximo
+    }
+
+    public PCB getRunning() {
+        return running.get(0);
+    }
+
+    public PCB getRunning(int core) {
+        return running.get(core);
+    }
+
     public boolean hasReadyProcesses() {
-        return !readyQueue.isEmpty() || running != null;
+        for (int c = 0; c < nCores; c++) {
+            if (!readyQueues[c].isEmpty() || running.get(c) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Há processo esperando em alguma fila READY (sem contar os em execução). */
+    public boolean hasQueuedProcesses() {
+        for (int c = 0; c < nCores; c++) {
+            if (!readyQueues[c].isEmpty()) {
+                return true;
+            }
+        }
+        return false;
     }
-    
+
     @Override
     public void run() {
         while (active) {
             lock.lock();
             try {
                 // Aguarda sinal de que há trabalho
-                while (readyQueue.isEmpty() && active) {
+                while (!hasQueuedProcesses() && active) {
                     hasWork.await();
                 }
-                
-                if (!active) break;
-                
-                // Escalona próximo processo se não há nenhum rodando
-                scheduleNext();
-                
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
             } finally {
                 lock.unlock();
             }
-            
+
+            if (!active) break;
+
+            // Escalona em todos os núcleos que não têm processo rodando
+            scheduleAll();
+
             // Pequena pausa para evitar busy-wait
             try {
                 Thread.sleep(10);
@@ -134,7 +326,7 @@ public class Scheduler implements Runnable {
             }
         }
     }
-    
+
     public void shutdown() {
         lock.lock();
         try {
@@ -144,4 +336,4 @@ public class Scheduler implements Runnable {
             lock.unlock();
         }
     }
-} 
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package software;
 
+import hardware.CPU;
+import util.Tracer;
+
 import java.util.List;
 import java.util.Scanner;
 
@@ -23,10 +26,16 @@ public class Shell implements Runnable {
         System.out.println("  ps             - Listar processos");
         System.out.println("  dump <pid>     - Dump de processo");
         System.out.println("  dumpM <i> <f>  - Dump da memória física");
+        System.out.println("  tlb [reset]    - Acertos/faltas da TLB");
+        System.out.println("  vm [fifo|clock|aging|arc] - Page faults por política / trocar a política");
+        System.out.println("  profile [on|off|reset] - Profiler: mistura de instruções por opcode");
+        System.out.println("  profile <pid> [n]      - PCs mais executados do processo");
+        System.out.println("  profile csv <arq>      - Gravar contadores do profiler em CSV");
         System.out.println("  exec <pid>     - Executar processo (modo debug)");
         System.out.println("  execAll        - Executar todos os processos");
-        System.out.println("  traceOn        - Ativar trace");
-        System.out.println("  traceOff       - Desativar trace");
+        System.out.println("  traceOn [arq]  - Ativar trace binário (padrão trace.bin)");
+        System.out.println("  traceOff       - Desativar trace e gravar pendentes");
+        System.out.println("  traceDecode [arq] [n] - Mostrar o trace como texto");
         System.out.println("  help           - Mostrar esta ajuda");
         System.out.println("  exit           - Sair do sistema");
         System.out.println();
@@ -81,6 +90,15 @@ public class Shell implements Runnable {
                     case "frames":
                         handleFrames();
                         break;
+                    case "tlb":
+                        handleTlb(parts);
+                        break;
+                    case "vm":
+                        handleVm(parts);
+                        break;
+                    case "profile":
+                        handleProfile(parts);
+                        break;
                     case "exec":
                         handleExec(parts);
                         break;
@@ -88,11 +106,14 @@ public class Shell implements Runnable {
                         handleExecAll();
                         break;
                     case "traceon":
-                        handleTraceOn();
+                        handleTraceOn(parts);
                         break;
                     case "traceoff":
                         handleTraceOff();
                         break;
+                    case "tracedecode":
+                        handleTraceDecode(parts);
+                        break;
                     case "help":
                         handleHelp();
                         break;
@@ -196,6 +217,56 @@ public class Shell implements Runnable {
         System.out.println(so.frames());
     }
 
+    private void handleTlb(String[] parts) {
+        if (parts.length == 2 && parts[1].equalsIgnoreCase("reset")) {
+            so.tlbReset();
+            System.out.println("Contadores da TLB zerados");
+            return;
+        }
+        System.out.println(so.tlbStatus());
+    }
+
+    private void handleVm(String[] parts) {
+        if (parts.length == 2) {
+            so.setReplacementPolicy(parts[1]);
+            return;
+        }
+        System.out.println(so.vmStatus());
+    }
+
+    private void handleProfile(String[] parts) {
+        if (parts.length == 1) {
+            System.out.println(so.profile());
+            return;
+        }
+        switch (parts[1].toLowerCase()) {
+            case "on":
+                so.profileOn();
+                return;
+            case "off":
+                so.profileOff();
+                return;
+            case "reset":
+                so.profileReset();
+                return;
+            case "csv":
+                if (parts.length != 3) {
+                    System.out.println("Uso: profile csv <arquivo>");
+                    return;
+                }
+                so.profileCsv(parts[2]);
+                return;
+            default:
+                try {
+                    int pid = Integer.parseInt(parts[1]);
+                    int limite = parts.length >= 3 ? Integer.parseInt(parts[2]) : 20;
+                    System.out.println(so.profile(pid, limite));
+                } catch (NumberFormatException e) {
+                    System.out.println("Uso: profile [on|off|reset|csv <arquivo>|<pid> [n]]");
+                }
+        }
+    }
+
     private void handleExec(String[] parts) {
         if (parts.length != 2) {
             System.out.println("Uso: exec <pid>");
@@ -214,14 +285,28 @@ public class Shell implements Runnable {
         so.execAll();
     }
 
-    private void handleTraceOn() {
-        so.traceOn();
+    private void handleTraceOn(String[] parts) {
+        if (parts.length == 2) {
+            so.traceOn(parts[1]);
+        } else {
+            so.traceOn();
+        }
     }
 
     private void handleTraceOff() {
         so.traceOff();
     }
 
+    private void handleTraceDecode(String[] parts) {
+        String arquivo = parts.length >= 2 ? parts[1] : Tracer.DEFAULT_FILE;
+        try {
+            long limite = parts.length >= 3 ? Long.parseLong(parts[2]) : 0;
+            so.traceDecode(arquivo, limite);
+        } catch (NumberFormatException e) {
+            System.out.println("Número de registros deve ser um número");
+        }
+    }
+
     private void handleHelp() {
         System.out.println();
         System.out.println("=== AJUDA - SO Didático ===");
@@ -231,10 +316,16 @@ public class Shell implements Runnable {
         System.out.println("  ps             - Listar processos");
         System.out.println("  dump <pid>     - Dump de processo");
         System.out.println("  dumpM <i> <f>  - Dump da memória física");
+        System.out.println("  tlb [reset]    - Acertos/faltas da TLB");
+        System.out.println("  vm [fifo|clock|aging|arc] - Page faults por política / trocar a política");
+        System.out.println("  profile [on|off|reset] - Profiler: mistura de instruções por opcode");
+        System.out.println("  profile <pid> [n]      - PCs mais executados do processo");
+        System.out.println("  profile csv <arq>      - Gravar contadores do profiler em CSV");
         System.out.println("  exec <pid>     - Executar processo (modo debug)");
         System.out.println("  execAll        - Executar todos os processos");
-        System.out.println("  traceOn        - Ativar trace");
-        System.out.println("  traceOff       - Desativar trace");
+        System.out.println("  traceOn [arq]  - Ativar trace binário (padrão trace.bin)");
+        System.out.println("  traceOff       - Desativar trace e gravar pendentes");
+        System.out.println("  traceDecode [arq] [n] - Mostrar o trace como texto");
         System.out.println("  help           - Mostrar esta ajuda");
         System.out.println("  exit           - Sair do sistema");
         System.out.println();
@@ -263,7 +354,9 @@ public class Shell implements Runnable {
         System.out.println("Finalizando sistema...");
         active = false;
         so.scheduler.shutdown();
-        so.hw.cpu.stopCPU();
+        for (CPU cpu : so.hw.cpus) {
+            cpu.stopCPU();
+        }
     }
 
     public void shutdown() {
@@ -0,0 +1,151 @@
+package software;
+
+import hardware.CPU;
+import hardware.Disk;
+
+import java.util.PriorityQueue;
+
+/**
+ * Modo de simulação sem threads, com relógio virtual (eventos discretos).
+ *
+ * Em vez de uma thread por CPU, do escalonador e do executor do disco, uma
+ * única thread retira eventos de uma fila ordenada por (tempo virtual, ordem
+ * de criação):
+ * - fatia de CPU: o núcleo executa uma fatia ({@link CPU#dispatchQuantum()});
+ *   a próxima fatia do núcleo é agendada para depois das instruções que ele
+ *   executou (1 instrução = 1 tick). O TIMER continua sendo gerado pela CPU
+ *   no fim da fatia, na mesma instrução do modo com threads;
+ * - término de IO: o {@link Disk} agenda a operação para agora + latência,
+ *   convertida em ticks, em vez de dormir.
+ *
+ * Nada depende de {@code Thread.sleep} nem da ordem em que o sistema
+ * operacional hospedeiro escalona threads: a mesma entrada produz sempre a
+ * mesma execução.
+ */
+public class Simulation implements Disk.IoScheduler {
+    public static final long DEFAULT_TICKS_PER_MILLI = 1000; // 1 tick = 1 µs virtual
+
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long seq;
+        final Runnable action;
+
+        Event(long time, long seq, Runnable action) {
+            this.time = time;
+            this.seq = seq;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event o) {
+            if (time != o.time) return Long.compare(time, o.time);
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    private final SO so;
+    private final CPU[] cpus;
+    private final PriorityQueue<Event> events;
+    private final boolean[] coreScheduled; // núcleo já tem uma fatia na fila de eventos
+    private final long[] coreInstructions;
+    private long ticksPerMilli;
+
+    private long now;       // tempo virtual, em ticks
+    private long nextSeq;
+    private long eventsProcessed;
+    private long ioOps;
+
+    public Simulation(SO so) {
+        this.so = so;
+        this.cpus = so.hw.cpus;
+        this.events = new PriorityQueue<>();
+        this.coreScheduled = new boolean[cpus.length];
+        this.coreInstructions = new long[cpus.length];
+        this.ticksPerMilli = DEFAULT_TICKS_PER_MILLI;
+        so.getDisk().setIoScheduler(this);
+        so.getPageReclaimer().setExecutor(op -> schedule(now, op)); // daemon: evento logo depois da falta
+    }
+
+    public void setTicksPerMilli(long ticksPerMilli) { this.ticksPerMilli = Math.max(1, ticksPerMilli); }
+    public long getNow() { return now; }
+    public long getEventsProcessed() { return eventsProcessed; }
+
+    public long getInstructions() {
+        long total = 0;
+        for (long n : coreInstructions) total += n;
+        return total;
+    }
+
+    // IO do disco: termina em agora + latência, no relógio virtual
+    @Override
+    public void submit(long latencyMillis, Runnable op) {
+        ioOps++;
+        schedule(now + latencyMillis * ticksPerMilli, op);
+    }
+
+    private void schedule(long time, Runnable action) {
+        events.add(new Event(time, nextSeq++, action));
+    }
+
+    /**
+     * Executa até não haver mais eventos (todos os processos terminaram ou
+     * estão bloqueados sem IO pendente) ou até o tempo virtual passar de
+     * {@code maxTicks}.
+     *
+     * @param maxTicks limite de tempo virtual (<= 0 para sem limite)
+     * @return tempo virtual final
+     */
+    public long run(long maxTicks) {
+        wakeIdleCores();
+        while (!events.isEmpty()) {
+            Event e = events.peek();
+            if (maxTicks > 0 && e.time > maxTicks) break;
+            events.poll();
+            now = e.time;
+            eventsProcessed++;
+            e.action.run();
+            wakeIdleCores();
+        }
+        return now;
+    }
+
+    private void runCore(int core) {
+        coreScheduled[core] = false;
+        int n = cpus[core].dispatchQuantum();
+        if (n < 0) {
+            return; // ocioso até chegar trabalho (wakeIdleCores)
+        }
+        coreInstructions[core] += n;
+        if (n == 0 && !hasWork(core)) {
+            return; // a falta bloqueou o processo: o fim do IO ou um despertar traz trabalho
+        }
+        coreScheduled[core] = true;
+        schedule(now + Math.max(1, n), () -> runCore(core)); // falta sem IO gasta um tick da fatia
+    }
+
+    private boolean hasWork(int core) {
+        return so.scheduler.hasQueuedProcesses() || so.scheduler.getRunning(core) != null;
+    }
+
+    // agenda uma fatia agora para cada núcleo livre, se há processo esperando
+    private void wakeIdleCores() {
+        for (int c = 0; c < cpus.length; c++) {
+            if (!coreScheduled[c] && hasWork(c)) {
+                final int core = c;
+                coreScheduled[c] = true;
+                schedule(now, () -> runCore(core));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Tempo virtual: %d ticks (%.3f ms) | eventos: %d | IOs: %d | instruções: %d\n",
+                now, (double) now / ticksPerMilli, eventsProcessed, ioOps, getInstructions()));
+        for (int c = 0; c < cpus.length; c++) {
+            sb.append(String.format("  cpu%d: %d instruções\n", c, coreInstructions[c]));
+        }
+        return sb.toString();
+    }
+}
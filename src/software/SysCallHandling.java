@@ -1,5 +1,7 @@
 package software;
 
+import hardware.CPU;
+
 // ------- C H A M A D A S D E S I S T E M A - rotinas de tratamento
 public class SysCallHandling {
     private SO so; // referencia ao SO
@@ -22,22 +24,27 @@ public class SysCallHandling {
         }
     }
 
-    public void handle() { // chamada de sistema
+    public void handle() {
+        handle(so.hw.cpu);
+    }
+
+    public void handle(CPU cpu) { // chamada de sistema, feita pelo núcleo cpu
         // suporta somente IO, com parametros
         // reg[8] = in ou out    e reg[9] endereco do inteiro
-        System.out.println("SYSCALL para:  " + so.hw.cpu.getReg()[8] + " / " + so.hw.cpu.getReg()[9]);
+        int[] reg = cpu.getReg();
+        System.out.println("SYSCALL para:  " + reg[8] + " / " + reg[9]);
 
-        if (so.hw.cpu.getReg()[8] == 1) {
+        if (reg[8] == 1) {
             // leitura ...
             System.out.println("SYSCALL: Operação de leitura não implementada");
-        } else if (so.hw.cpu.getReg()[8] == 2) {
+        } else if (reg[8] == 2) {
             // escrita - escreve o conteudo da memoria na posicao dada em reg[9]
-            PCB running = so.scheduler.getRunning();
+            PCB running = cpu.getCurrentPCB();
             if (running != null) {
-                int endLogico = so.hw.cpu.getReg()[9];
+                int endLogico = reg[9];
                 try {
-                    int endFisico = so.traduzEndereco(running, endLogico);
-                    System.out.println("OUT: " + so.hw.mem.read(endFisico).p);
+                    // página pode estar ausente: o SO lê do disco/imagem sem gerar page fault
+                    System.out.println("OUT: " + so.getPager().readData(running, endLogico));
                 } catch (Exception e) {
                     System.out.println("ERRO na SYSCALL: " + e.getMessage());
                 }
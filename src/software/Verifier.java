@@ -0,0 +1,77 @@
+package software;
+
+import hardware.InstructionCache;
+import hardware.Opcode;
+import hardware.Word;
+
+/**
+ * Verificador de programas, executado uma vez na criação do processo.
+ *
+ * Confere, para cada instrução da imagem:
+ * - que o opcode é uma instrução executável (palavras DATA e vazias são dados);
+ * - que os registradores usados estão entre 0 e 9;
+ * - que os alvos constantes (JMP k, JMPI?K k, JMPIGT k, LDD/STD k,
+ *   JMPIM/JMPI?M k) caem dentro do espaço lógico do processo.
+ *
+ * Um processo verificado ({@link PCB#verified}) executa sem repetir essas
+ * verificações a cada instrução. Acessos dinâmicos (LDX/STX, desvios para
+ * endereço em registrador ou lido da memória) continuam verificados.
+ */
+public class Verifier {
+    private static final int NREGS = 10;
+
+    /**
+     * @param image       imagem do programa
+     * @param logicalSize tamanho do espaço lógico do processo (páginas * tamPg)
+     * @return null se o programa é válido, ou a descrição do primeiro problema
+     */
+    public static String check(Word[] image, int logicalSize) {
+        for (int i = 0; i < image.length; i++) {
+            Word w = image[i];
+            if (w == null || w.opc == null || w.opc == Opcode.DATA || w.opc == Opcode.___) {
+                continue; // dado: só é erro se for executado (interrupção em tempo de execução)
+            }
+            if (!InstructionCache.isValidInstruction(w.opc)) {
+                return "pos " + i + ": opcode " + w.opc + " não é executável";
+            }
+            String erro = checkOperands(w, logicalSize);
+            if (erro != null) {
+                return "pos " + i + " (" + w.opc + "): " + erro;
+            }
+        }
+        return null;
+    }
+
+    private static String checkOperands(Word w, int logicalSize) {
+        switch (w.opc) {
+            case LDI: case ADDI: case SUBI: case JMPI:
+                return reg(w.ra);
+            case LDD: case STD:
+                return first(reg(w.ra), target(w.p, logicalSize));
+            case LDX: case STX: case MOVE: case ADD: case SUB: case MULT:
+            case JMPIG: case JMPIL: case JMPIE:
+                return first(reg(w.ra), reg(w.rb));
+            case JMPIGK: case JMPILK: case JMPIEK:
+            case JMPIGM: case JMPILM: case JMPIEM:
+                return first(reg(w.rb), target(w.p, logicalSize));
+            case JMPIGT:
+                return first(first(reg(w.ra), reg(w.rb)), target(w.p, logicalSize));
+            case JMP: case JMPIM:
+                return target(w.p, logicalSize);
+            default: // SYSCALL, STOP
+                return null;
+        }
+    }
+
+    private static String reg(int r) {
+        return (r < 0 || r >= NREGS) ? "registrador r" + r + " inválido" : null;
+    }
+
+    private static String target(int p, int logicalSize) {
+        return (p < 0 || p >= logicalSize) ? "endereço " + p + " fora do espaço lógico (0.." + (logicalSize - 1) + ")" : null;
+    }
+
+    private static String first(String a, String b) {
+        return a != null ? a : b;
+    }
+}
@@ -0,0 +1,329 @@
+package util;
+
+import hardware.Opcode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Trace binário do sistema.
+ *
+ * Cada evento (instrução executada, tradução de endereço, troca de contexto,
+ * page-in/out...) vira um registro de tamanho fixo gravado em um buffer
+ * circular pré-alocado, sem lock: cada produtor (núcleos, escalonador,
+ * disco) reserva uma sequência com CAS, preenche o registro e o publica.
+ * Uma thread de drenagem grava os registros em arquivo; o texto só é gerado
+ * depois, por {@link #decode}. Assim o trace não passa pelo console no
+ * caminho de execução.
+ *
+ * Se o buffer enche (drenagem atrasada), o registro é descartado e contado
+ * em {@link #getDropped()}.
+ */
+public class Tracer {
+
+    public enum Event {
+        INSTR,      // pc, opcode, ra, rb, p, registradores
+        TRANSLATE,  // pc = end. lógico, a = página, b = frame, c = end. físico
+        READY,      // processo entrou na fila READY do núcleo cpu
+        SWITCH,     // núcleo cpu passou a executar pid a partir de pc
+        TIMER,      // pid preemptado no núcleo cpu, em pc
+        PAGE_IN,    // a = página, b = frame, c = slot
+        PAGE_OUT    // a = página, c = slot
+    }
+    private static final Event[] EVENTS = Event.values();
+    private static final Opcode[] OPCODES = Opcode.values();
+
+    public static final String DEFAULT_FILE = "trace.bin";
+    public static final int DEFAULT_CAPACITY = 1 << 16; // registros
+
+    // Layout de um registro (RECORD_LONGS longs):
+    //   0: timestamp (ns desde o início do trace)
+    //   1: evento << 48 | cpu << 32 | pid
+    //   2: pc << 32 | opcode
+    //   3: a << 32 | b
+    //   4: c
+    //   5..9: registradores, dois por long
+    private static final int RECORD_LONGS = 10;
+    private static final int NREGS = 10;
+    private static final int MAGIC = 0x4F535452; // "OSTR"
+    private static final int VERSION = 1;
+
+    private final int capacity;
+    private final int mask;
+    private long[] data;               // alocado no primeiro start()
+    private AtomicLongArray published; // published[slot] = sequência + 1 quando o registro está completo
+
+    private final AtomicLong head = new AtomicLong(); // próxima sequência a reservar
+    private volatile long tail;                        // próxima sequência a drenar
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean enabled;
+    private volatile boolean draining;
+    private Thread drainer;
+    private DataOutputStream out;
+    private String file;
+    private long startNanos;
+    private volatile long written;
+
+    public Tracer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity número de registros do buffer (arredondado para potência de 2)
+     */
+    public Tracer(int capacity) {
+        int n = Integer.highestOneBit(Math.max(1, capacity - 1) << 1);
+        this.capacity = n;
+        this.mask = n - 1;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public String getFile() { return file; }
+    public long getDropped() { return dropped.get(); }
+    public long getWritten() { return written; }
+
+    /**
+     * Liga o trace gravando em {@code path} (sobrescreve o arquivo).
+     */
+    public synchronized void start(String path) throws IOException {
+        if (enabled) {
+            stop();
+        }
+        if (data == null) {
+            data = new long[capacity * RECORD_LONGS];
+            published = new AtomicLongArray(capacity);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16));
+        startNanos = System.nanoTime();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(RECORD_LONGS);
+        file = path;
+        written = 0;
+        dropped.set(0);
+        tail = head.get(); // registros de um trace anterior já foram drenados
+
+        draining = true;
+        drainer = new Thread(this::drainLoop, "Tracer");
+        drainer.setDaemon(true);
+        drainer.start();
+        enabled = true;
+    }
+
+    /**
+     * Desliga o trace, drena o que restou no buffer e fecha o arquivo.
+     */
+    public synchronized void stop() {
+        if (!enabled) return;
+        enabled = false;
+        draining = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println("ERRO: falha ao fechar trace " + file + ": " + e.getMessage());
+        }
+        drainer = null;
+        out = null;
+    }
+
+    // ============== PRODUTORES ==============
+
+    public void record(Event ev, int cpu, int pid, int pc, int opc, int a, int b, int c, int[] regs) {
+        if (!enabled) return;
+
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail >= capacity) {
+                dropped.incrementAndGet(); // buffer cheio: descarta em vez de bloquear o núcleo
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+
+        int slot = (int) (seq & mask);
+        int base = slot * RECORD_LONGS;
+        long[] d = data;
+        d[base] = System.nanoTime() - startNanos;
+        d[base + 1] = ((long) ev.ordinal() << 48) | ((long) (cpu & 0xFFFF) << 32) | (pid & 0xFFFFFFFFL);
+        d[base + 2] = ((long) pc << 32) | (opc & 0xFFFFFFFFL);
+        d[base + 3] = ((long) a << 32) | (b & 0xFFFFFFFFL);
+        d[base + 4] = c;
+        for (int i = 0; i < NREGS; i += 2) {
+            d[base + 5 + i / 2] = regs == null ? 0 : ((long) regs[i] << 32) | (regs[i + 1] & 0xFFFFFFFFL);
+        }
+        published.lazySet(slot, seq + 1); // publica depois do registro completo
+    }
+
+    public void instruction(int cpu, int pid, int pc, int opc, int ra, int rb, int p, int[] regs) {
+        record(Event.INSTR, cpu, pid, pc, opc, ra, rb, p, regs);
+    }
+
+    public void event(Event ev, int cpu, int pid, int pc, int a, int b, int c) {
+        record(ev, cpu, pid, pc, -1, a, b, c, null);
+    }
+
+    // ============== DRENAGEM ==============
+
+    private void drainLoop() {
+        while (draining) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(1_000_000L);
+            }
+        }
+        // final: espera produtores que já reservaram uma sequência terminarem de publicar
+        long deadline = System.nanoTime() + 100_000_000L;
+        while (tail != head.get() && System.nanoTime() < deadline) {
+            if (drain() == 0) Thread.yield();
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("ERRO: falha ao gravar trace " + file + ": " + e.getMessage());
+        }
+    }
+
+    // grava os registros publicados em ordem de sequência; retorna quantos gravou
+    private int drain() {
+        long t = tail;
+        int n = 0;
+        try {
+            while (published.get((int) (t & mask)) == t + 1) {
+                int base = (int) (t & mask) * RECORD_LONGS;
+                for (int i = 0; i < RECORD_LONGS; i++) {
+                    out.writeLong(data[base + i]);
+                }
+                t++;
+                n++;
+            }
+        } catch (IOException e) {
+            System.out.println("ERRO: falha ao gravar trace " + file + ": " + e.getMessage());
+            draining = false;
+            enabled = false;
+        }
+        tail = t; // libera os slots para os produtores
+        written += n;
+        if (n == 0) {
+            try {
+                out.flush();
+            } catch (IOException ignored) {
+            }
+        }
+        return n;
+    }
+
+    // ============== DECODIFICADOR ==============
+
+    /**
+     * Converte um arquivo de trace em texto.
+     *
+     * @param path  arquivo gravado pelo Tracer
+     * @param limit número máximo de registros (<= 0 para todos)
+     * @param ps    destino do texto
+     * @return número de registros decodificados
+     */
+    public static long decode(String path, long limit, PrintStream ps) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " não é um arquivo de trace");
+            }
+            int version = in.readInt();
+            int recordLongs = in.readInt();
+            if (version != VERSION || recordLongs != RECORD_LONGS) {
+                throw new IOException("Versão de trace não suportada: " + version);
+            }
+            long[] r = new long[RECORD_LONGS];
+            long n = 0;
+            while (limit <= 0 || n < limit) {
+                try {
+                    for (int i = 0; i < RECORD_LONGS; i++) {
+                        r[i] = in.readLong();
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                ps.println(format(r));
+                n++;
+            }
+            return n;
+        }
+    }
+
+    private static String format(long[] r) {
+        int ev = (int) (r[1] >>> 48);
+        int cpu = (int) ((r[1] >>> 32) & 0xFFFF);
+        int pid = (int) r[1];
+        int pc = (int) (r[2] >> 32);
+        int opc = (int) r[2];
+        int a = (int) (r[3] >> 32);
+        int b = (int) r[3];
+        int c = (int) r[4];
+
+        StringBuilder sb = new StringBuilder();
+        String origem = cpu == 0xFFFF ? "so  " : "cpu" + cpu; // cpu -1: evento fora de um núcleo
+        sb.append(String.format("[%12.3fus] %s pid=%-3d ", r[0] / 1000.0, origem, pid));
+        Event event = ev < EVENTS.length ? EVENTS[ev] : null;
+        if (event == null) {
+            return sb.append("evento desconhecido ").append(ev).toString();
+        }
+        switch (event) {
+            case INSTR:
+                String op = (opc >= 0 && opc < OPCODES.length) ? OPCODES[opc].name() : "???";
+                sb.append(String.format("pc=%-4d %-7s %d, %d, %d  regs:", pc, op, a, b, c));
+                for (int i = 0; i < NREGS; i += 2) {
+                    long w = r[5 + i / 2];
+                    sb.append(" r").append(i).append('=').append((int) (w >> 32));
+                    sb.append(" r").append(i + 1).append('=').append((int) w);
+                }
+                break;
+            case TRANSLATE:
+                sb.append(String.format("Tradução: endLog=%d → pg=%d, frame=%d → endFis=%d", pc, a, b, c));
+                break;
+            case READY:
+                sb.append("adicionado à fila READY");
+                break;
+            case SWITCH:
+                sb.append("Switch -> pc=").append(pc);
+                break;
+            case TIMER:
+                sb.append("TIMER: preempção em pc=").append(pc);
+                break;
+            case PAGE_IN:
+                sb.append(String.format("page-in concluído (pg=%d, frame=%d, slot=%d)", a, b, c));
+                break;
+            case PAGE_OUT:
+                sb.append(String.format("page-out concluído (pg=%d, slot=%d)", a, c));
+                break;
+        }
+        return sb.toString();
+    }
+
+    /** Decodificador de linha de comando: {@code java util.Tracer [arquivo] [n]}. */
+    public static void main(String[] args) throws IOException {
+        String path = args.length > 0 ? args[0] : DEFAULT_FILE;
+        long limit = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        decode(path, limit, System.out);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Trace %s: %s, %d registros gravados, %d descartados",
+                file == null ? "-" : file, enabled ? "ativo" : "inativo", written, dropped.get());
+    }
+}
@@ -15,12 +15,9 @@ public class Utilities {
     }
 
     private void loadProgram(Word[] p) {
-        Word[] m = hw.mem.pos; // m[] é o array de posições memória do hw
         for (int i = 0; i < p.length; i++) {
-            m[i].opc = p[i].opc;
-            m[i].ra = p[i].ra;
-            m[i].rb = p[i].rb;
-            m[i].p = p[i].p;
+            // escreve via Memory.write para invalidar o cache de instruções do frame
+            hw.mem.write(i, new Word(p[i].opc, p[i].ra, p[i].rb, p[i].p));
         }
     }
 
@@ -38,11 +35,10 @@ public class Utilities {
     }
 
     public void dump(int ini, int fim) {
-        Word[] m = hw.mem.pos; // m[] é o array de posições memória do hw
         for (int i = ini; i < fim; i++) {
             System.out.print(i);
             System.out.print(":  ");
-            dump(m[i]);
+            dump(hw.mem.read(i)); // Word construído somente para exibição
         }
     }
 